@@ -0,0 +1,27 @@
+package tools.vlab.kberry.core;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link LineSettings} to a serial device before it is opened.
+ */
+public interface LineConfigurator {
+
+    /**
+     * @throws IOException with the reason if the device could not be configured
+     */
+    void configure(String device, LineSettings settings) throws IOException;
+
+    /**
+     * Forgets any cached state of the device, the next {@link #configure} applies the settings again.
+     */
+    default void invalidate(String device) {
+    }
+
+    /**
+     * Configuration via {@code stty}, forked only once per device and settings.
+     */
+    static LineConfigurator stty() {
+        return SttyLineConfigurator.INSTANCE;
+    }
+}
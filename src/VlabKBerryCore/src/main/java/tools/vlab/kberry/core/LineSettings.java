@@ -0,0 +1,46 @@
+package tools.vlab.kberry.core;
+
+/**
+ * Serial line configuration (termios) for a {@link SerialPort}.
+ * <p>
+ * The line always runs raw with 8 data bits and one stop bit. Reads use VMIN=0 / VTIME=readTimeout:
+ * a read returns as soon as at least one byte is available, or with 0 bytes once the timeout elapsed
+ * without data. The timeout therefore only bounds how long the reader thread blocks on an idle line.
+ *
+ * @param baudRate      line speed, 19200 for the kBerry
+ * @param evenParity    even parity as required by FT1.2, false disables parity (e.g. on a pty)
+ * @param readTimeoutMs maximum block time of a read on an idle line, 100..25500ms in steps of 100ms
+ */
+public record LineSettings(int baudRate, boolean evenParity, int readTimeoutMs) {
+
+    public LineSettings {
+        if (readTimeoutMs < 100 || readTimeoutMs > 25500) {
+            throw new IllegalArgumentException("Read timeout must be between 100 and 25500ms: " + readTimeoutMs);
+        }
+    }
+
+    /**
+     * FT1.2 settings of the kBerry: 8E1, 200ms read timeout.
+     */
+    public static LineSettings ft12(int baudRate) {
+        return new LineSettings(baudRate, true, 200);
+    }
+
+    public LineSettings withoutParity() {
+        return new LineSettings(baudRate, false, readTimeoutMs);
+    }
+
+    /**
+     * VTIME in tenths of a second.
+     */
+    public int vtime() {
+        return readTimeoutMs / 100;
+    }
+
+    String toSttyArguments() {
+        return String.format("%d %s cs8 -cstopb raw -echo min 0 time %d",
+                baudRate,
+                evenParity ? "parenb -parodd" : "-parenb",
+                vtime());
+    }
+}
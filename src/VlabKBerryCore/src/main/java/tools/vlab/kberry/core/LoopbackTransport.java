@@ -0,0 +1,135 @@
+package tools.vlab.kberry.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory duplex {@link Transport}.
+ * <p>
+ * Two ends are created together with {@link #pair()}; bytes written on one end are delivered to the
+ * listeners of the other end on a dedicated delivery thread, in write order. Optionally every write is
+ * delayed by a fixed latency and split into fragments of at most {@code fragmentSize} bytes, to mimic
+ * how a serial line hands out partial frames.
+ * <p>
+ * Used to run the complete reader / writer / connection stack in-process, e.g. against a simulated
+ * object server in tests and benchmarks.
+ */
+public class LoopbackTransport implements Transport {
+
+    private static final Logger Log = LoggerFactory.getLogger(LoopbackTransport.class);
+
+    private final String name;
+    private final long latencyNanos;
+    private final int fragmentSize;
+    private final List<SerialPortListener> listeners = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<Chunk> inbound = new LinkedBlockingQueue<>();
+    private LoopbackTransport peer;
+    private Thread deliveryThread;
+    private volatile boolean running = false;
+
+    private LoopbackTransport(String name, Duration latency, int fragmentSize) {
+        this.name = name;
+        this.latencyNanos = latency.toNanos();
+        this.fragmentSize = fragmentSize;
+    }
+
+    /**
+     * Creates two connected ends without latency and fragmentation.
+     */
+    public static Pair pair() {
+        return pair(Duration.ZERO, 0);
+    }
+
+    /**
+     * Creates two connected ends.
+     *
+     * @param latency      delay between write and delivery on the other end
+     * @param fragmentSize maximum bytes per delivered chunk, 0 delivers every write as one chunk
+     */
+    public static Pair pair(Duration latency, int fragmentSize) {
+        var host = new LoopbackTransport("host", latency, fragmentSize);
+        var device = new LoopbackTransport("device", latency, fragmentSize);
+        host.peer = device;
+        device.peer = host;
+        return new Pair(host, device);
+    }
+
+    public record Pair(LoopbackTransport host, LoopbackTransport device) {
+    }
+
+    @Override
+    public synchronized boolean openPort() {
+        if (running) return true;
+        running = true;
+        deliveryThread = new Thread(this::deliveryLoop, "loopback-" + name);
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void closePort() {
+        running = false;
+        if (deliveryThread != null) deliveryThread.interrupt();
+        inbound.clear();
+    }
+
+    @Override
+    public void writeBytes(byte[] data) {
+        if (!running || data.length == 0) return;
+        peer.enqueue(Arrays.copyOf(data, data.length), System.nanoTime() + latencyNanos);
+    }
+
+    @Override
+    public void addListener(SerialPortListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SerialPortListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void enqueue(byte[] data, long dueNanos) {
+        if (!running) return;
+        if (fragmentSize <= 0 || data.length <= fragmentSize) {
+            inbound.add(new Chunk(data, dueNanos));
+            return;
+        }
+        for (int offset = 0; offset < data.length; offset += fragmentSize) {
+            inbound.add(new Chunk(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + fragmentSize)), dueNanos));
+        }
+    }
+
+    private void deliveryLoop() {
+        try {
+            while (running) {
+                var chunk = inbound.take();
+                long wait;
+                while ((wait = chunk.dueNanos() - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.interrupted()) throw new InterruptedException();
+                }
+                for (SerialPortListener l : listeners) {
+                    try {
+                        l.dataReceived(chunk.data(), chunk.data().length);
+                    } catch (RuntimeException e) {
+                        Log.error("[{}] Listener failed", name, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Chunk(byte[] data, long dueNanos) {
+    }
+}
@@ -50,7 +50,8 @@ public class Main {
             System.out.println("Add Listener Check");
 
             System.out.println("Starte Listener Check");
-            connection.connect();
+            // verbindet und prüft die registrierten Datenpunkte gegen die ETS-Konfiguration
+            devices.connect();
             checker.start();
         } catch (TimeoutException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,140 @@
+package tools.vlab.kberry.core;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Transport} that plays back the received frames of a {@link WireCapture}.
+ * <p>
+ * Frames are delivered with their original spacing divided by the speed factor, or back to back at
+ * maximum speed. Written bytes are only counted, nothing answers them. Together with
+ * {@link tools.vlab.kberry.core.baos.BAOSReader} this turns a captured production burst into a
+ * repeatable throughput or latency benchmark.
+ */
+public class ReplayTransport implements Transport {
+
+    private static final Logger Log = LoggerFactory.getLogger(ReplayTransport.class);
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private final List<WireCapture.Record> records;
+    private final double speed;
+    private final List<SerialPortListener> listeners = new CopyOnWriteArrayList<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicLong written = new AtomicLong();
+    private Thread replayThread;
+    private volatile boolean running = false;
+    @Getter
+    private volatile long replayedFrames = 0;
+    @Getter
+    private volatile long elapsedNanos = 0;
+
+    private ReplayTransport(List<WireCapture.Record> records, double speed) {
+        this.records = records.stream().filter(r -> r.direction() == WireCapture.Direction.RX).toList();
+        this.speed = speed;
+    }
+
+    public static ReplayTransport realtime(Path capture) throws IOException {
+        return new ReplayTransport(WireCapture.read(capture), 1.0);
+    }
+
+    /**
+     * @param speed factor relative to the captured timing, e.g. 10 for ten times faster
+     */
+    public static ReplayTransport scaled(Path capture, double speed) throws IOException {
+        if (speed <= 0) throw new IllegalArgumentException("Speed must be > 0");
+        return new ReplayTransport(WireCapture.read(capture), speed);
+    }
+
+    public static ReplayTransport maxSpeed(Path capture) throws IOException {
+        return new ReplayTransport(WireCapture.read(capture), MAX_SPEED);
+    }
+
+    public static ReplayTransport of(List<WireCapture.Record> records, double speed) {
+        return new ReplayTransport(records, speed);
+    }
+
+    @Override
+    public synchronized boolean openPort() {
+        if (running) return true;
+        running = true;
+        replayThread = new Thread(this::replay, "replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void closePort() {
+        running = false;
+        if (replayThread != null) replayThread.interrupt();
+    }
+
+    @Override
+    public void writeBytes(byte[] data) {
+        written.addAndGet(data.length);
+    }
+
+    public long getWrittenBytes() {
+        return written.get();
+    }
+
+    public int getFrames() {
+        return records.size();
+    }
+
+    /**
+     * Waits until all frames were delivered.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    @Override
+    public void addListener(SerialPortListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SerialPortListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void replay() {
+        long start = System.nanoTime();
+        long firstNanos = records.isEmpty() ? 0 : records.get(0).nanos();
+        try {
+            for (WireCapture.Record record : records) {
+                if (!running) break;
+                if (speed != MAX_SPEED) {
+                    long due = start + (long) ((record.nanos() - firstNanos) / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0 && running) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                byte[] frame = record.frame();
+                for (SerialPortListener l : listeners) {
+                    l.dataReceived(frame, frame.length);
+                }
+                replayedFrames++;
+            }
+        } catch (RuntimeException e) {
+            Log.error("Replay failed after {} frames", replayedFrames, e);
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+            finished.countDown();
+        }
+    }
+}
@@ -6,18 +6,40 @@ import tools.vlab.kberry.core.baos.ByteUtil;
 
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-public class SerialPort {
+public class SerialPort implements Transport {
 
     private static final Logger Log = LoggerFactory.getLogger(SerialPort.class);
+    private static final int READ_BUFFER_SIZE = 512;
+
+    /**
+     * How received bytes are handed to the listeners.
+     */
+    public enum ReceiveMode {
+        /**
+         * Polls the input stream and collects bytes until 20ms of silence were seen (legacy behaviour).
+         */
+        PACKETIZED,
+        /**
+         * Blocking reads into a reusable buffer; every chunk goes straight to the listeners.
+         * The FT1.2 parser finds the frame boundaries, no timing heuristic is involved.
+         */
+        STREAMING
+    }
 
     private final String device;
-    private final int baudRate;
-    private FileOutputStream out;
+    private final LineSettings settings;
+    private final ReceiveMode receiveMode;
+    private final LineConfigurator configurator;
+    private FileChannel channel;
     private FileInputStream in;
     private Thread readThread;
     private volatile boolean running = false;
@@ -26,89 +48,142 @@ public class SerialPort {
     private final List<SerialPortListener> listeners = new CopyOnWriteArrayList<>();
 
     public SerialPort(String device, int baudRate) {
+        this(device, baudRate, ReceiveMode.STREAMING);
+    }
+
+    public SerialPort(String device, int baudRate, ReceiveMode receiveMode) {
+        this(device, LineSettings.ft12(baudRate), receiveMode, LineConfigurator.stty());
+    }
+
+    public SerialPort(String device, LineSettings settings, ReceiveMode receiveMode, LineConfigurator configurator) {
         this.device = device;
-        this.baudRate = baudRate;
+        this.settings = settings;
+        this.receiveMode = receiveMode;
+        this.configurator = configurator;
     }
 
+    @Override
     public void addListener(SerialPortListener listener) {
         this.listeners.add(listener);
     }
 
+    @Override
     public void removeListener(SerialPortListener listener) {
         this.listeners.remove(listener);
     }
 
+    @Override
     public boolean openPort() {
         try {
-            String sttyCmd = String.format("stty -F %s %d parenb -parodd cs8 -cstopb raw -echo", device, baudRate);
-            Process p = Runtime.getRuntime().exec(new String[]{"/bin/sh", "-c", sttyCmd});
-            if (p.waitFor() != 0) return false;
-
-            this.out = new FileOutputStream(device);
-            this.in = new FileInputStream(device);
+            configurator.configure(device, settings);
+            this.channel = FileChannel.open(Path.of(device), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (receiveMode == ReceiveMode.PACKETIZED) {
+                // available() gibt es nur auf dem Stream
+                this.in = new FileInputStream(device);
+            }
 
             this.running = true;
             startReading();
             return true;
-        } catch (Exception e) {
+        } catch (IOException e) {
+            Log.error("Open {} failed: {}", device, e.getMessage());
+            configurator.invalidate(device);
             closePort();
             return false;
         }
     }
 
     private void startReading() {
-        readThread = new Thread(() -> {
-            ByteArrayOutputStream packetBuffer = new ByteArrayOutputStream();
-
-            while (running) {
-                try {
-                    int available = in.available();
-                    if (available > 0) {
-                        byte[] chunk = new byte[available];
-                        int len = in.read(chunk);
-                        if (len > 0) {
-                            packetBuffer.write(chunk, 0, len);
-                        }
-                    } else if (packetBuffer.size() > 0) {
-                        // Paket-Erkennung: Wenn 40ms keine neuen Bytes kommen,
-                        // betrachten wir das Telegramm als vollständig.
-                        Thread.sleep(20);
-                        if (in.available() == 0) {
-                            byte[] fullPacket = packetBuffer.toByteArray();
-                            for (SerialPortListener l : listeners) {
-                                l.dataReceived(fullPacket);
-                            }
-                            packetBuffer.reset();
+        Runnable loop = receiveMode == ReceiveMode.STREAMING ? this::streamLoop : this::packetLoop;
+        readThread = new Thread(loop, "serial-reader");
+        readThread.setDaemon(true);
+        readThread.start();
+    }
+
+    private void streamLoop() {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        while (running) {
+            try {
+                view.clear();
+                int len = channel.read(view);
+                // -1 (oder 0) bedeutet hier VTIME abgelaufen, die Leitung war ruhig; geschlossen wird nur über closePort()
+                if (len > 0) {
+                    for (SerialPortListener l : listeners) {
+                        l.dataReceived(buffer, len);
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                running = false;
+            } catch (IOException e) {
+                if (running) Log.error("Read Error: {}", e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private void packetLoop() {
+        ByteArrayOutputStream packetBuffer = new ByteArrayOutputStream();
+
+        while (running) {
+            try {
+                int available = in.available();
+                if (available > 0) {
+                    byte[] chunk = new byte[available];
+                    int len = in.read(chunk);
+                    if (len > 0) {
+                        packetBuffer.write(chunk, 0, len);
+                    }
+                } else if (packetBuffer.size() > 0) {
+                    // Paket-Erkennung: Wenn 20ms keine neuen Bytes kommen,
+                    // betrachten wir das Telegramm als vollständig.
+                    Thread.sleep(20);
+                    if (in.available() == 0) {
+                        byte[] fullPacket = packetBuffer.toByteArray();
+                        for (SerialPortListener l : listeners) {
+                            l.dataReceived(fullPacket);
                         }
-                    } else {
-                        Thread.sleep(10); // CPU schonen
+                        packetBuffer.reset();
                     }
-                } catch (IOException | InterruptedException e) {
-                    if (running) System.err.println("Read Error: " + e.getMessage());
+                } else {
+                    Thread.sleep(10); // CPU schonen
                 }
+            } catch (IOException | InterruptedException e) {
+                if (running) Log.error("Read Error: {}", e.getMessage());
             }
-        }, "serial-reader");
-        readThread.setDaemon(true);
-        readThread.start();
+        }
     }
 
+    private void pause() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
     public synchronized void writeBytes(byte[] data) {
-        if (out == null) return;
+        if (channel == null) return;
         try {
-            Log.debug("Write Data: {}", ByteUtil.toHex(data));
-            out.write(data);
-            out.flush();
+            if (Log.isDebugEnabled()) Log.debug("Write Data: {}", ByteUtil.toHex(data));
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
         } catch (IOException e) {
-            System.err.println("Write Error: " + e.getMessage());
+            Log.error("Write Error: {}", e.getMessage());
         }
     }
 
+    @Override
     public void closePort() {
         running = false;
         try {
             if (readThread != null) readThread.interrupt();
             if (in != null) in.close();
-            if (out != null) out.close();
+            if (channel != null) channel.close();
         } catch (Exception e) { /* ignore */ }
     }
 }
@@ -1,6 +1,16 @@
 package tools.vlab.kberry.core;
 
+import java.util.Arrays;
+
 public interface SerialPortListener {
 
     void dataReceived(byte[] data);
+
+    /**
+     * Called with a chunk of a reused receive buffer. Only the first {@code length} bytes are valid
+     * and the buffer must not be kept after returning.
+     */
+    default void dataReceived(byte[] data, int length) {
+        dataReceived(Arrays.copyOf(data, length));
+    }
 }
@@ -0,0 +1,81 @@
+package tools.vlab.kberry.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Configures the line with {@code stty}.
+ * <p>
+ * termios settings stay on the device after it is closed, so the process is only forked when the
+ * device node was not configured with the same settings before. Reconnects and connect retries reopen the
+ * device without forking. Errors carry stty's message instead of just an exit code.
+ */
+class SttyLineConfigurator implements LineConfigurator {
+
+    private static final Logger Log = LoggerFactory.getLogger(SttyLineConfigurator.class);
+    static final SttyLineConfigurator INSTANCE = new SttyLineConfigurator();
+
+    private final Map<String, Applied> applied = new ConcurrentHashMap<>();
+
+    /**
+     * The ctime of the device node identifies the device instance: a re-created node (USB replug, new pty)
+     * starts with default termios settings again and must be configured anew.
+     */
+    private record Applied(LineSettings settings, Object nodeCTime) {
+    }
+
+    @Override
+    public void configure(String device, LineSettings settings) throws IOException {
+        Object nodeCTime = nodeCTime(device);
+        if (nodeCTime != null && new Applied(settings, nodeCTime).equals(applied.get(device))) {
+            return;
+        }
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(buildCommand(device, settings)).redirectErrorStream(true).start();
+        try {
+            String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            int exit = p.waitFor();
+            if (exit != 0) {
+                throw new IOException(String.format("stty %s failed (exit %d): %s", device, exit, output));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            p.destroy();
+            throw new IOException("Configuring " + device + " interrupted", e);
+        }
+        if (nodeCTime != null) {
+            applied.put(device, new Applied(settings, nodeCTime));
+        }
+        Log.info("Configured {} [{}] in {}ms", device, settings, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void invalidate(String device) {
+        applied.remove(device);
+    }
+
+    private static Object nodeCTime(String device) {
+        try {
+            return Files.getAttribute(Path.of(device), "unix:ctime");
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String[] buildCommand(String device, LineSettings settings) {
+        var arguments = settings.toSttyArguments().split(" ");
+        var command = new String[arguments.length + 3];
+        command[0] = "stty";
+        command[1] = "-F";
+        command[2] = device;
+        System.arraycopy(arguments, 0, command, 3, arguments.length);
+        return command;
+    }
+}
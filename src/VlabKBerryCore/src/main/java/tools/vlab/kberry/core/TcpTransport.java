@@ -0,0 +1,156 @@
+package tools.vlab.kberry.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.vlab.kberry.core.baos.ByteUtil;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+import tools.vlab.kberry.core.baos.messages.InvalidFormatException;
+import tools.vlab.kberry.core.baos.messages.ObjectServerFrame;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link Transport} to a BAOS object server via the binary ObjectServer protocol over TCP (port 12004).
+ * <p>
+ * Reader and writer above keep speaking FT1.2: outgoing data frames are unwrapped and sent with
+ * {@link ObjectServerFrame} framing, incoming ObjectServer messages are wrapped into FT1.2 data frames
+ * before the listeners see them. TCP is reliable, so there is no link-layer handshake on the wire;
+ * resets and data frames are acknowledged locally and ACKs from the host are dropped.
+ */
+public class TcpTransport implements Transport {
+
+    private static final Logger Log = LoggerFactory.getLogger(TcpTransport.class);
+    public static final int DEFAULT_PORT = 12004;
+    private static final byte[] ACK = FT12Frame.Ack.ack().toByteArray();
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMs;
+    private final List<SerialPortListener> listeners = new CopyOnWriteArrayList<>();
+    private Socket socket;
+    private OutputStream out;
+    private Thread readThread;
+    private volatile boolean running = false;
+    private final AtomicBoolean oddToHost = new AtomicBoolean(true);
+
+    public TcpTransport(String host) {
+        this(host, DEFAULT_PORT, 2000);
+    }
+
+    public TcpTransport(String host, int port, int connectTimeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    @Override
+    public boolean openPort() {
+        try {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            out = socket.getOutputStream();
+            var in = new DataInputStream(socket.getInputStream());
+            running = true;
+            readThread = new Thread(() -> readLoop(in), "tcp-reader");
+            readThread.setDaemon(true);
+            readThread.start();
+            return true;
+        } catch (IOException e) {
+            Log.error("Connect to {}:{} failed: {}", host, port, e.getMessage());
+            closePort();
+            return false;
+        }
+    }
+
+    @Override
+    public void closePort() {
+        running = false;
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException e) { /* ignore */ }
+    }
+
+    @Override
+    public synchronized void writeBytes(byte[] data) {
+        if (out == null || data.length == 0) return;
+        int b = data[0] & 0xFF;
+        if (b == 0xE5) {
+            return;
+        }
+        if (b == 0x10) {
+            deliver(ACK);
+            return;
+        }
+        if (!FT12Frame.Data.is(data) || data.length < 7) {
+            Log.error("Unsupported frame for TCP: {}", ByteUtil.toHex(data));
+            return;
+        }
+        try {
+            out.write(ObjectServerFrame.encode(Arrays.copyOfRange(data, 5, data.length - 2)));
+            out.flush();
+            deliver(ACK);
+        } catch (IOException e) {
+            Log.error("Write Error: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void addListener(SerialPortListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SerialPortListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void readLoop(DataInputStream in) {
+        byte[] header = new byte[ObjectServerFrame.HEADER_SIZE];
+        while (running) {
+            try {
+                in.readFully(header);
+                byte[] body = new byte[ObjectServerFrame.totalLength(header) - ObjectServerFrame.HEADER_SIZE];
+                in.readFully(body);
+                byte[] payload = ObjectServerFrame.payload(body);
+                deliver(FT12Frame.Data.response(payload, nextOdd()).toByteArray());
+            } catch (IOException e) {
+                if (running) Log.error("Read Error: {}", e.getMessage());
+                running = false;
+            } catch (InvalidFormatException e) {
+                // Ohne gültigen Header ist der Stream nicht mehr synchron
+                Log.error("Invalid ObjectServer frame, closing connection: {}", e.getMessage());
+                closePort();
+            }
+        }
+    }
+
+    private boolean nextOdd() {
+        return oddToHost.getAndSet(!oddToHost.get());
+    }
+
+    /**
+     * Called from the read thread and, for the synthetic ACKs, from the writing thread; listeners (the
+     * stream parser) expect one caller at a time. A failing listener neither stops the reader nor keeps
+     * the others from getting the frame.
+     */
+    private void deliver(byte[] frame) {
+        synchronized (listeners) {
+            for (SerialPortListener l : listeners) {
+                try {
+                    l.dataReceived(frame, frame.length);
+                } catch (RuntimeException e) {
+                    Log.error("Listener failed on received frame", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package tools.vlab.kberry.core;
+
+/**
+ * Byte transport underneath the BAOS reader and writer.
+ * <p>
+ * Implementations deliver received bytes to all registered {@link SerialPortListener}s in the order they
+ * arrived; frame boundaries are not preserved. {@link SerialPort} is the implementation for the kBerry's
+ * serial line.
+ */
+public interface Transport {
+
+    /**
+     * Opens the transport and starts delivering received bytes.
+     *
+     * @return true if the transport is ready for writing
+     */
+    boolean openPort();
+
+    void closePort();
+
+    void writeBytes(byte[] data);
+
+    void addListener(SerialPortListener listener);
+
+    void removeListener(SerialPortListener listener);
+}
@@ -0,0 +1,182 @@
+package tools.vlab.kberry.core;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary capture of FT1.2 frames in memory-mapped segment files.
+ * <p>
+ * Segment layout:
+ * <pre>
+ * Header   "KBWC" | version (1) | capture start epoch ms (8)
+ * Record   direction (1) | length (2) | nanos since capture start (8) | frame (length)
+ * </pre>
+ * A direction byte of 0 marks the end of the written data (the mapped region is zero filled).
+ * When a segment is full the capture continues in {@code <file>.1}, {@code <file>.2}, ... A frame that
+ * does not fit into an empty segment is not captured.
+ * Appending is a copy into the mapped buffer; no formatting and no syscall per frame.
+ */
+public class WireCapture implements Closeable {
+
+    private static final Logger Log = LoggerFactory.getLogger(WireCapture.class);
+    private static final byte[] MAGIC = {'K', 'B', 'W', 'C'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final int RECORD_OVERHEAD = 1 + 2 + 8;
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    public enum Direction {
+        RX(1), TX(2);
+
+        private final byte code;
+
+        Direction(int code) {
+            this.code = (byte) code;
+        }
+
+        static Direction of(byte code) {
+            return code == RX.code ? RX : TX;
+        }
+    }
+
+    public record Record(long nanos, Direction direction, byte[] frame) {
+    }
+
+    private final Path file;
+    private final int segmentSize;
+    private final int maxFrameLength;
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentIndex = 0;
+    @Getter
+    private long records = 0;
+
+    private WireCapture(Path file, int segmentSize) {
+        this.file = file;
+        this.segmentSize = segmentSize;
+        // Header, ein Datensatz und die Endmarke; die Länge steht in 2 Bytes
+        this.maxFrameLength = Math.min(0xFFFF, segmentSize - HEADER_SIZE - RECORD_OVERHEAD - 1);
+    }
+
+    public static WireCapture create(Path file) throws IOException {
+        return create(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static WireCapture create(Path file, int segmentSize) throws IOException {
+        // Segmente einer älteren Aufnahme mit gleichem Namen entfernen
+        for (int index = 1; Files.deleteIfExists(segmentPath(file, index)); index++) ;
+        var capture = new WireCapture(file, segmentSize);
+        capture.openSegment();
+        return capture;
+    }
+
+    public void received(byte[] frame) {
+        append(Direction.RX, frame, frame.length);
+    }
+
+    public void sent(byte[] frame) {
+        append(Direction.TX, frame, frame.length);
+    }
+
+    public void append(Direction direction, byte[] frame, int length) {
+        append(direction, frame, 0, length);
+    }
+
+    public synchronized void append(Direction direction, byte[] frame, int offset, int length) {
+        if (segment == null) return;
+        if (length > maxFrameLength) {
+            Log.warn("Frame of {} bytes exceeds the capture segment (max {}), not captured", length, maxFrameLength);
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        if (segment.remaining() < RECORD_OVERHEAD + length + 1) {
+            try {
+                nextSegment();
+            } catch (IOException e) {
+                Log.error("Capture segment roll failed, capture stopped", e);
+                segment = null;
+                return;
+            }
+        }
+        segment.put(direction.code);
+        segment.putShort((short) length);
+        segment.putLong(nanos);
+        segment.put(frame, offset, length);
+        records++;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        segment.force();
+        channel.close();
+        segmentIndex++;
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(segmentPath(file, segmentIndex),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.put(MAGIC);
+        segment.put(VERSION);
+        segment.putLong(startMillis);
+    }
+
+    private static Path segmentPath(Path file, int index) {
+        return index == 0 ? file : file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Reads all records of a capture, following its segments.
+     */
+    public static List<Record> read(Path file) throws IOException {
+        var records = new ArrayList<Record>();
+        for (int index = 0; Files.exists(segmentPath(file, index)); index++) {
+            try (var channel = FileChannel.open(segmentPath(file, index), StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                byte[] magic = new byte[MAGIC.length];
+                buffer.get(magic);
+                if (!Arrays.equals(magic, MAGIC) || buffer.get() != VERSION) {
+                    throw new IOException("No wire capture: " + segmentPath(file, index));
+                }
+                buffer.getLong();
+                while (buffer.remaining() >= RECORD_OVERHEAD) {
+                    byte direction = buffer.get();
+                    if (direction == 0) break;
+                    int length = buffer.getShort() & 0xFFFF;
+                    long nanos = buffer.getLong();
+                    byte[] frame = new byte[length];
+                    buffer.get(frame);
+                    records.add(new Record(nanos, Direction.of(direction), frame));
+                }
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,26 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Getter;
+
+/**
+ * A command left the transmit queue without being sent: the queue of its class was full or the command
+ * waited longer than its max age.
+ */
+@Getter
+public class BAOSQueueException extends RuntimeException {
+
+    private final int dataPointId;
+    private final TrafficClass trafficClass;
+    private final TransmitScheduler.Discard reason;
+
+    public BAOSQueueException(int dataPointId, TrafficClass trafficClass, TransmitScheduler.Discard reason) {
+        super(String.format("Datapoint [%d] not sent, %s queue: %s", dataPointId, trafficClass, reason));
+        this.dataPointId = dataPointId;
+        this.trafficClass = trafficClass;
+        this.reason = reason;
+    }
+
+    public boolean isQueueFull() {
+        return reason != TransmitScheduler.Discard.EXPIRED;
+    }
+}
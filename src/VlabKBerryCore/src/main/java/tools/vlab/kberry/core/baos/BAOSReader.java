@@ -1,12 +1,16 @@
 package tools.vlab.kberry.core.baos;
 
+import lombok.Getter;
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import tools.vlab.kberry.core.SerialPort;
 import tools.vlab.kberry.core.SerialPortListener;
+import tools.vlab.kberry.core.Transport;
+import tools.vlab.kberry.core.WireCapture;
 import tools.vlab.kberry.core.baos.messages.FT12Frame;
 import tools.vlab.kberry.core.baos.messages.os.DataFramePayload;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -15,61 +19,96 @@ public class BAOSReader implements SerialPortListener {
 
     private static final Logger Log = LoggerFactory.getLogger(BAOSReader.class);
 
-    private final SerialPort port;
+    private final Transport port;
     private final FT12StreamParser parser = new FT12StreamParser();
+    private final FT12StreamParser.FrameHandler frameHandler = this::onFrame;
 
+    /**
+     * How long unsolicited responses and timed out requests are kept to recognize late responses.
+     */
+    private static final int RETENTION_MS = 30_000;
+    private static final ScheduledExecutorService EXPIRY = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "baos-response-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Frames with a valid checksum that could not be decoded and were dropped.
+     */
+    @Getter
+    private volatile long decodeErrors = 0;
     private final AtomicLong ackTS = new AtomicLong(0);
-    private final ConcurrentHashMap<String, CompletableFuture<FT12Frame.Data>> responseFrames = new ConcurrentHashMap<>();
+    private volatile long lastFrameNanos = System.nanoTime();
+    private final ResponseTable responses = new ResponseTable(RETENTION_MS);
+    private ScheduledFuture<?> expiry;
     private final ConcurrentLinkedDeque<FT12Frame.Data> indicatorFrames = new ConcurrentLinkedDeque<>();
     private final AckWriter ackWriter;
+    @Setter
+    private volatile WireCapture capture;
 
-    public BAOSReader(SerialPort port, AckWriter ackWriter) {
+    public BAOSReader(Transport port, AckWriter ackWriter) {
         this.port = port;
         this.ackWriter = ackWriter;
     }
 
-    public void start() {
+    public synchronized void start() {
         port.addListener(this);
+        if (expiry == null) {
+            expiry = EXPIRY.scheduleWithFixedDelay(responses::expire, 1, 1, TimeUnit.SECONDS);
+        }
     }
 
-    public void stop() {
+    public synchronized void stop() {
+        if (expiry != null) {
+            expiry.cancel(false);
+            expiry = null;
+        }
     }
 
+    /**
+     * Waits for the next response to the request, e.g. a follow-up while the module is still updating.
+     * Gives up when the entry expires.
+     */
     public FT12Frame.Data nextResponse(DataFramePayload payload) throws BAOSReadException {
+        int key = key(payload);
+        var future = responses.register(key, RETENTION_MS);
         try {
-            return getFuture(payload).get();
+            return future.get();
         } catch (InterruptedException | ExecutionException e) {
+            responses.release(key, future, true);
             throw new BAOSReadException("Reading interrupted!", e);
         }
     }
 
     public FutureFrame responseOf(DataFramePayload payload, int timeoutMs) {
-        CompletableFuture<FT12Frame.Data> future;
-        if (!containsFuture(payload)) {
-            future = new CompletableFuture<>();
-            putFuture(payload, future);
-        } else {
-            future = getFuture(payload);
-        }
-        return new FutureFrame(future, payload, timeoutMs, responseFrames);
+        int key = key(payload);
+        return new FutureFrame(responses.register(key, timeoutMs), key, payload, timeoutMs, responses);
     }
 
-    public record FutureFrame(CompletableFuture<FT12Frame.Data> future, DataFramePayload payload, int timeoutMS,
-                              ConcurrentHashMap<String, CompletableFuture<FT12Frame.Data>> pending) {
+    public record FutureFrame(CompletableFuture<FT12Frame.Data> future, int key, DataFramePayload payload,
+                              int timeoutMS, ResponseTable pending) {
 
         public FT12Frame.Data waitForResult() throws TimeoutException {
             try {
                 var buffer = future.get(timeoutMS(), TimeUnit.MILLISECONDS);
-                pending.remove(String.format("%s@%d", payload.getService(), payload.getId()));
+                pending.release(key, future, false);
                 return buffer;
             } catch (Exception e) {
-                pending.remove(String.format("%s@%d", payload.getService(), payload.getId()));
+                pending.release(key, future, true);
                 throw new TimeoutException("Timeout " + timeoutMS() + "ms [" + payload.getId() + "]");
             }
         }
 
     }
 
+    /**
+     * Pending requests and counters for orphaned and late responses.
+     */
+    public ResponseTable getResponseTable() {
+        return responses;
+    }
+
 
     /**
      * Check indicator
@@ -86,8 +125,16 @@ public class BAOSReader implements SerialPortListener {
      * Wartet auf ein ACK
      */
     public void waitForAck(long timeoutMs) throws TimeoutException {
+        waitForAck(System.currentTimeMillis(), timeoutMs);
+    }
+
+    /**
+     * Wartet auf ein ACK, das nach {@code sinceMs} empfangen wurde. Den Zeitpunkt vor dem Senden nehmen,
+     * sonst kann ein schnelles ACK schon vor dem Warten angekommen sein.
+     */
+    public void waitForAck(long sinceMs, long timeoutMs) throws TimeoutException {
         long start = System.currentTimeMillis();
-        while (ackTS.get() < start) {
+        while (ackTS.get() < sinceMs) {
             if (System.currentTimeMillis() - start > timeoutMs)
                 throw new TimeoutException("Ack Timeout > " + timeoutMs + "ms");
             try {
@@ -99,54 +146,59 @@ public class BAOSReader implements SerialPortListener {
         ackTS.set(0);
     }
 
-    @Override
-    public void dataReceived(byte[] serialData) {
-        parser.feed(serialData);
-        byte[] frame;
-        while ((frame = parser.pollFrame()) != null) {
-
-            if (FT12Frame.Ack.is(frame)) {
-                ackTS.set(System.currentTimeMillis());
-                continue;
-            }
-            if (FT12Frame.Data.is(frame)) {
-                ackWriter.ack();
-                FT12Frame.Data data = FT12Frame.Data.of(frame);
-                if (data.isIndicator()) {
-                    Log.debug("IND: ?: {}", data.toHex());
-                    indicatorFrames.add(data);
-                } else if (data.isResponse()) {
-                    getFuture(data).complete(data);
-                } else {
-                    Log.error("No Datapoint or server Item: {}", data.toHex());
-                }
-                continue;
-            }
-            Log.error("Unknown frame: {}", ByteUtil.toHex(frame));
-        }
+    /**
+     * Time since the last frame (ACK, response or indication) came in, a silent line for long points to a
+     * stalled module or reader.
+     */
+    public long nanosSinceLastFrame() {
+        return System.nanoTime() - lastFrameNanos;
     }
 
-    private CompletableFuture<FT12Frame.Data> getFuture(DataFramePayload payload) {
-        var id = id(payload);
-        return this.responseFrames.get(id);
+    /**
+     * Receive statistics of the frame parser (frames, ACKs, resyncs, checksum errors).
+     */
+    public FT12StreamParser getParser() {
+        return parser;
     }
 
-    private CompletableFuture<FT12Frame.Data> getFuture(FT12Frame.Data data) {
-        return this.responseFrames.computeIfAbsent(String.format("%s@%s", data.getService().getResponseCode(), data.getId()), k -> new CompletableFuture<>());
+    @Override
+    public void dataReceived(byte[] serialData) {
+        parser.feed(serialData, frameHandler);
     }
 
-    private void putFuture(DataFramePayload payload, CompletableFuture<FT12Frame.Data> future) {
-        var id = id(payload);
-        this.responseFrames.put(id, future);
+    @Override
+    public void dataReceived(byte[] serialData, int length) {
+        parser.feed(serialData, length, frameHandler);
     }
 
-    private boolean containsFuture(DataFramePayload payload) {
-        return this.responseFrames.containsKey(String.format("%s@%s", payload.getService().getResponseCode(), payload.getId()));
-    }
+    private void onFrame(byte[] buffer, int offset, int length) {
+        lastFrameNanos = System.nanoTime();
+        var capture = this.capture;
+        if (capture != null) capture.append(WireCapture.Direction.RX, buffer, offset, length);
 
-    private static String id(DataFramePayload payload) {
-        return String.format("%s@%s", payload.getService().getResponseCode(), payload.getId());
+        if (buffer[offset] == (byte) 0xE5) {
+            ackTS.set(System.currentTimeMillis());
+            return;
+        }
+        ackWriter.ack();
+        try {
+            FT12Frame.Data data = FT12Frame.Data.of(buffer, offset, length);
+            if (data.isIndicator()) {
+                if (Log.isDebugEnabled()) Log.debug("IND: ?: {}", data.toHex());
+                indicatorFrames.add(data);
+            } else if (data.isResponse()) {
+                responses.complete(ResponseTable.key(data.getService().getResponseCode(), data.getId()), data);
+            } else {
+                Log.error("No Datapoint or server Item: {}", data.toHex());
+            }
+        } catch (RuntimeException e) {
+            // Prüfsumme stimmt, Inhalt nicht (z.B. Steuerbyte): Frame verwerfen, der Empfang läuft weiter
+            decodeErrors++;
+            Log.error("Dropping undecodable frame {}: {}", ByteUtil.toHex(Arrays.copyOfRange(buffer, offset, offset + length)), e.getMessage());
+        }
     }
 
-
-}
\ No newline at end of file
+    private static int key(DataFramePayload payload) {
+        return ResponseTable.key(payload.getService().getResponseCode(), payload.getId());
+    }
+}
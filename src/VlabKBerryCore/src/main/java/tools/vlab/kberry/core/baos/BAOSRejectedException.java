@@ -0,0 +1,20 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Getter;
+import tools.vlab.kberry.core.baos.messages.os.Error;
+
+/**
+ * The object server answered a command with an error.
+ */
+@Getter
+public class BAOSRejectedException extends RuntimeException {
+
+    private final int dataPointId;
+    private final Error error;
+
+    public BAOSRejectedException(int dataPointId, Error error) {
+        super(String.format("Object server rejected [%d]: %s", dataPointId, error.getDescription()));
+        this.dataPointId = dataPointId;
+        this.error = error;
+    }
+}
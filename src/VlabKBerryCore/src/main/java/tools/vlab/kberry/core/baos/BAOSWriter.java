@@ -1,24 +1,30 @@
 package tools.vlab.kberry.core.baos;
 
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import tools.vlab.kberry.core.SerialPort;
+import tools.vlab.kberry.core.Transport;
+import tools.vlab.kberry.core.WireCapture;
 import tools.vlab.kberry.core.baos.messages.FT12Frame;
 import tools.vlab.kberry.core.baos.messages.os.DataFramePayload;
 
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class BAOSWriter implements AckWriter {
 
     private static final Logger Log = LoggerFactory.getLogger(BAOSWriter.class);
 
-    private final SerialPort serialPort;
+    private final Transport serialPort;
     private volatile boolean running = false;
-    private final ConcurrentLinkedDeque<byte[]> frames = new ConcurrentLinkedDeque<>();
+    private static final int FRAME_GAP_MS = 10;
+
+    private final TransmitScheduler<Outgoing> frames = new TransmitScheduler<>(Integer.MAX_VALUE, TransmitScheduler.OverflowPolicy.BLOCK);
     private final AtomicInteger sequence = new AtomicInteger(1);
+    @Setter
+    private volatile WireCapture capture;
 
-    public BAOSWriter(SerialPort serialPort) {
+    public BAOSWriter(Transport serialPort) {
         this.serialPort = serialPort;
     }
 
@@ -37,32 +43,27 @@ public class BAOSWriter implements AckWriter {
         sendDataFrame(request, false);
     }
 
+    /**
+     * Queues a data frame. The ODD/EVEN control bit is assigned when the frame is transmitted, so the
+     * toggle follows the wire order even if priority frames overtake or several threads send at once.
+     */
     public void sendDataFrame(DataFramePayload request, boolean priority) {
-        boolean odd = isOddAndNext();
-        var data = FT12Frame.Data.request(request, odd);
-        if (priority) {
-            frames.addFirst(data.toByteArray());
-        } else {
-            frames.addLast(data.toByteArray());
-        }
-        Log.debug(
-                "Add To Stack: {} seq={} priority={} {}",
-                odd ? "ODD" : "EVENT",
-                sequence.get(),
-                priority,
-                data.toHex()
-        );
+        sendDataFrame(request, priority ? TrafficClass.INTERACTIVE : TrafficClass.AUTOMATION);
+    }
+
+    public void sendDataFrame(DataFramePayload request, TrafficClass trafficClass) {
+        enqueue(trafficClass, new Outgoing(request, null));
     }
 
     public void sendAck() {
         var ack = FT12Frame.Ack.ack();
-        frames.addLast(ack.toByteArray());
+        enqueue(TrafficClass.LINK_CONTROL, new Outgoing(null, ack.toByteArray()));
     }
 
     public void sendReset() {
         var reset = FT12Frame.Reset.request();
-        frames.addLast(reset.toByteArray());
-        Log.debug(
+        enqueue(TrafficClass.LINK_CONTROL, new Outgoing(null, reset.toByteArray()));
+        if (Log.isDebugEnabled()) Log.debug(
                 "RES: {} seq={} {}",
                 isOdd() ? "ODD" : "EVENT",
                 sequence.get(),
@@ -70,6 +71,22 @@ public class BAOSWriter implements AckWriter {
         );
     }
 
+    /**
+     * Queue depth and wait time of the frames per class.
+     */
+    public TransmitScheduler.QueueStats stats(TrafficClass trafficClass) {
+        return frames.stats(trafficClass);
+    }
+
+    private void enqueue(TrafficClass trafficClass, Outgoing outgoing) {
+        try {
+            // unbegrenzte Kapazität, blockiert nie
+            frames.offer(trafficClass, outgoing);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void resetSequence() {
         this.sequence.set(1);
     }
@@ -86,16 +103,36 @@ public class BAOSWriter implements AckWriter {
     private void writeLoop() {
         try {
             while (running) {
-                byte[] frame = frames.pollFirst();
-                if (frame != null) {
-                    serialPort.writeBytes(frame);
-                }
-                Thread.sleep(10);
+                var outgoing = frames.take(100, TimeUnit.MILLISECONDS);
+                if (outgoing == null) continue;
+                byte[] frame = outgoing.frame() != null ? outgoing.frame() : toFrame(outgoing.request());
+                var capture = this.capture;
+                if (capture != null) capture.sent(frame);
+                serialPort.writeBytes(frame);
+                Thread.sleep(FRAME_GAP_MS);
             }
         } catch (InterruptedException ignored) {
         }
     }
 
+    private byte[] toFrame(DataFramePayload request) {
+        boolean odd = isOddAndNext();
+        var data = FT12Frame.Data.request(request, odd);
+        if (Log.isDebugEnabled()) Log.debug(
+                "Send: {} seq={} {}",
+                odd ? "ODD" : "EVENT",
+                sequence.get(),
+                data.toHex()
+        );
+        return data.toByteArray();
+    }
+
+    /**
+     * Queued frame: either a data frame request (built on transmit) or raw bytes (ACK, reset).
+     */
+    private record Outgoing(DataFramePayload request, byte[] frame) {
+    }
+
     @Override
     public void ack() {
         sendAck();
@@ -0,0 +1,167 @@
+package tools.vlab.kberry.core.baos;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces datapoint commands with a token bucket whose rate follows the estimated KNX TP bus load.
+ * <p>
+ * The load is estimated from two signals:
+ * <ul>
+ *     <li>traffic: telegrams per second sent by us plus indications received (traffic of other devices),
+ *     relative to the ~50 telegrams/s a TP1 line at 9600 bit/s carries</li>
+ *     <li>latency: how far the smoothed response latency is above the fastest one seen, a busy bus
+ *     delays the module's answers</li>
+ * </ul>
+ * Below the target load every response raises the rate additively, above it the rate is reduced; a
+ * timeout halves it (AIMD).
+ */
+public class BusPacer {
+
+    /**
+     * Standard telegrams per second on a KNX TP1 line (9600 bit/s, ~20ms per telegram with ACK).
+     */
+    public static final double BUS_CAPACITY = 50;
+    private static final double TARGET_LOAD = 0.5;
+    private static final double INCREASE = 0.5;
+    private static final double DECREASE = 0.85;
+    private static final double RATE_TAU_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final double minRate;
+    private final double maxRate;
+    private final double burst;
+    private final LongSupplier clock;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private final DecayingRate sent = new DecayingRate();
+    private final DecayingRate indications = new DecayingRate();
+    private double latencyNanos = 0;
+    private double baselineNanos = 0;
+
+    /**
+     * 10 commands/s to start (the former fixed 100ms pause), between 1 and 40 per second, burst of 5.
+     */
+    public BusPacer() {
+        this(10, 1, 40, 5, System::nanoTime);
+    }
+
+    BusPacer(double initialRate, double minRate, double maxRate, double burst, LongSupplier clock) {
+        this.rate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.burst = burst;
+        this.clock = clock;
+        this.tokens = 1;
+        this.lastRefill = clock.getAsLong();
+    }
+
+    /**
+     * Takes a token and returns how long the caller has to wait before sending, 0 if it may send now.
+     */
+    synchronized long reserve() {
+        return reserve(1);
+    }
+
+    /**
+     * Takes one token per telegram, for a request the module puts on the bus as several telegrams (a
+     * batched SetDatapointValue), and returns how long the caller has to wait before sending.
+     */
+    synchronized long reserve(int telegrams) {
+        long now = clock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * rate);
+        lastRefill = now;
+        tokens -= telegrams;
+        for (int i = 0; i < telegrams; i++) sent.event(now);
+        return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+    }
+
+    /**
+     * How long until {@link #reserve()} would not have to wait, 0 if a command may be sent now.
+     */
+    synchronized long readyInNanos() {
+        double available = available();
+        return available >= 1 ? 0 : (long) Math.ceil((1 - available) / rate * 1e9);
+    }
+
+    /**
+     * Whole tokens available now, i.e. how many telegrams may go out without waiting.
+     */
+    synchronized int availableTokens() {
+        return (int) Math.max(0, Math.floor(available()));
+    }
+
+    private double available() {
+        return Math.min(burst, tokens + (clock.getAsLong() - lastRefill) / 1e9 * rate);
+    }
+
+    public synchronized void onResponse(long latencyNanos) {
+        this.latencyNanos = this.latencyNanos == 0 ? latencyNanos : this.latencyNanos + LATENCY_ALPHA * (latencyNanos - this.latencyNanos);
+        // Basislinie: schnellste Antwort, wandert langsam mit, falls sich die Strecke dauerhaft ändert
+        baselineNanos = baselineNanos == 0 || latencyNanos < baselineNanos
+                ? latencyNanos
+                : baselineNanos + 0.01 * (this.latencyNanos - baselineNanos);
+        if (busLoad() < TARGET_LOAD) {
+            rate = Math.min(maxRate, rate + INCREASE);
+        } else {
+            rate = Math.max(minRate, rate * DECREASE);
+        }
+    }
+
+    public synchronized void onTimeout() {
+        rate = Math.max(minRate, rate / 2);
+    }
+
+    public synchronized void onIndication() {
+        indications.event(clock.getAsLong());
+    }
+
+    /**
+     * Current pacing rate in commands per second.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Estimated bus load between 0 and 1.
+     */
+    public synchronized double getBusLoad() {
+        return busLoad();
+    }
+
+    /**
+     * Smoothed response latency in milliseconds.
+     */
+    public synchronized double getLatencyMs() {
+        return latencyNanos / 1e6;
+    }
+
+    private double busLoad() {
+        long now = clock.getAsLong();
+        double traffic = (sent.rate(now) + indications.rate(now)) / BUS_CAPACITY;
+        double latency = latencyNanos == 0 ? 0 : 1 - baselineNanos / latencyNanos;
+        return Math.max(0, Math.min(1, Math.max(traffic, latency)));
+    }
+
+    /**
+     * Events per second, exponentially decaying with {@link #RATE_TAU_NANOS}.
+     */
+    private static final class DecayingRate {
+        private double value;
+        private long last;
+        private boolean started;
+
+        void event(long now) {
+            value = rate(now) + 1e9 / RATE_TAU_NANOS;
+            last = now;
+            started = true;
+        }
+
+        double rate(long now) {
+            return started ? value * Math.exp(-(now - last) / RATE_TAU_NANOS) : 0;
+        }
+    }
+}
@@ -48,6 +48,11 @@ public class ByteUtil {
         return ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
     }
 
+    public static long uInt32(byte[] payload, int index) {
+        return ((long) (payload[index] & 0xFF) << 24) | ((payload[index + 1] & 0xFF) << 16)
+                | ((payload[index + 2] & 0xFF) << 8) | (payload[index + 3] & 0xFF);
+    }
+
     public static int uInt8(byte[] payload) {
         return uInt8(payload, 0);
     }
@@ -2,18 +2,49 @@ package tools.vlab.kberry.core.baos;
 
 import tools.vlab.kberry.core.baos.messages.os.DataPoint;
 
-public record DataPointPriority(DataPoint dataPoint, boolean priority, int retry) {
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queued datapoint command.
+ *
+ * @param deadlineNanos {@link System#nanoTime()} after which the command is stale, or {@link TransmitScheduler#NO_DEADLINE}
+ * @param batchable     may be sent together with other commands in one SetDatapointValue request
+ * @param result        completed when the object server accepted the command, failed with
+ *                      {@link BAOSRejectedException}, {@link BAOSQueueException} or {@link TimeoutException}
+ */
+public record DataPointPriority(DataPoint dataPoint, TrafficClass trafficClass, int retry, long deadlineNanos,
+                                boolean batchable, CompletableFuture<Void> result) {
 
     public static DataPointPriority prio(DataPoint dataPoint) {
-        return new DataPointPriority(dataPoint, true, 0);
+        return of(dataPoint, TrafficClass.INTERACTIVE, TransmitScheduler.NO_DEADLINE);
     }
 
     public static DataPointPriority normal(DataPoint dataPoint) {
-        return new DataPointPriority(dataPoint, false, 0);
+        return of(dataPoint, TrafficClass.AUTOMATION, TransmitScheduler.NO_DEADLINE);
+    }
+
+    public static DataPointPriority of(DataPoint dataPoint, TrafficClass trafficClass, long deadlineNanos) {
+        return new DataPointPriority(dataPoint, trafficClass, 0, deadlineNanos, true, new CompletableFuture<>());
+    }
+
+    /**
+     * Retries are sent alone.
+     */
+    public static DataPointPriority retry(DataPointPriority dataPoint) {
+        return new DataPointPriority(dataPoint.dataPoint(), dataPoint.trafficClass(), dataPoint.retry() + 1,
+                dataPoint.deadlineNanos(), false, dataPoint.result());
+    }
+
+    /**
+     * Same command, sent alone (e.g. after its batch failed).
+     */
+    public static DataPointPriority single(DataPointPriority dataPoint) {
+        return new DataPointPriority(dataPoint.dataPoint(), dataPoint.trafficClass(), dataPoint.retry(),
+                dataPoint.deadlineNanos(), false, dataPoint.result());
     }
 
-    public static DataPointPriority retry(DataPoint dataPoint, int retry) {
-        return new DataPointPriority(dataPoint, false, retry + 1);
+    public boolean priority() {
+        return trafficClass.compareTo(TrafficClass.INTERACTIVE) <= 0;
     }
 
     public String toString() {
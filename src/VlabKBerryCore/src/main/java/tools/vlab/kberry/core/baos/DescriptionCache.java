@@ -0,0 +1,107 @@
+package tools.vlab.kberry.core.baos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.GetDatapointDescription;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Datapoint descriptions of a module on disk, one file per module application ({@link
+ * SerialBAOSConnection#getApplicationKey()}).
+ * <p>
+ * Besides the descriptions the file holds which ids were asked for, so a datapoint the module does not know
+ * is not asked for again either. A new application (ETS download with another ID or version) starts a new
+ * file; after changing the configuration with the same version delete the file.
+ */
+public class DescriptionCache {
+
+    private static final Logger Log = LoggerFactory.getLogger(DescriptionCache.class);
+    private static final int VERSION = 1;
+
+    /**
+     * @param checked      ids asked for at the module
+     * @param descriptions descriptions of the configured ones among them, by id
+     */
+    public record Catalog(Set<Integer> checked, Map<Integer, GetDatapointDescription.Description> descriptions) {
+
+        public static Catalog empty() {
+            return new Catalog(new TreeSet<>(), new TreeMap<>());
+        }
+
+        public boolean covers(DataPointId id) {
+            return checked.contains(id.id());
+        }
+
+        public Optional<GetDatapointDescription.Description> get(DataPointId id) {
+            return Optional.ofNullable(descriptions.get(id.id()));
+        }
+
+        public Catalog with(Collection<DataPointId> ids, Collection<GetDatapointDescription.Description> found) {
+            var allChecked = new TreeSet<>(checked);
+            ids.forEach(id -> allChecked.add(id.id()));
+            var all = new TreeMap<>(descriptions);
+            found.forEach(description -> all.put(description.id().id(), description));
+            return new Catalog(allChecked, all);
+        }
+    }
+
+    private final Path directory;
+
+    public DescriptionCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Catalog load(String applicationKey) {
+        var file = file(applicationKey);
+        if (!Files.exists(file)) return Catalog.empty();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VERSION) return Catalog.empty();
+            var checked = new TreeSet<Integer>();
+            for (int i = in.readInt(); i > 0; i--) checked.add(in.readUnsignedShort());
+            var descriptions = new TreeMap<Integer, GetDatapointDescription.Description>();
+            for (int i = in.readInt(); i > 0; i--) {
+                int id = in.readUnsignedShort();
+                descriptions.put(id, new GetDatapointDescription.Description(DataPointId.id(id),
+                        in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte()));
+            }
+            return new Catalog(checked, descriptions);
+        } catch (IOException e) {
+            Log.warn("Ignoring unreadable datapoint descriptions {}: {}", file, e.getMessage());
+            return Catalog.empty();
+        }
+    }
+
+    public void store(String applicationKey, Catalog catalog) {
+        var file = file(applicationKey);
+        try {
+            Files.createDirectories(directory);
+            var temp = Files.createTempFile(directory, "dp-descriptions", ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(VERSION);
+                out.writeInt(catalog.checked().size());
+                for (int id : catalog.checked()) out.writeShort(id);
+                out.writeInt(catalog.descriptions().size());
+                for (var description : catalog.descriptions().values()) {
+                    out.writeShort(description.id().id());
+                    out.writeByte(description.valueType());
+                    out.writeByte(description.flags());
+                    out.writeByte(description.dpt());
+                }
+            }
+            // erst vollständig schreiben, dann ersetzen
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Could not save datapoint descriptions to {}", file, e);
+        }
+    }
+
+    private Path file(String applicationKey) {
+        return directory.resolve("dp-descriptions-" + applicationKey.replaceAll("[^A-Za-z0-9-]", "_") + ".dat");
+    }
+}
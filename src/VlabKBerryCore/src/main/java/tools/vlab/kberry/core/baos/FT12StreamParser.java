@@ -1,114 +1,177 @@
 package tools.vlab.kberry.core.baos;
 
-import java.util.ArrayDeque;
-import java.util.Arrays;
-import java.util.Queue;
-
+import lombok.Getter;
+
+/**
+ * Splits the FT1.2 byte stream from the kBerry into ACKs and data frames.
+ * <p>
+ * Received bytes are copied into a ring buffer and validated in place (header, length, checksum and end
+ * byte). Complete frames are handed to a {@link FrameHandler} as a view on the ring, only a frame that
+ * wraps around the end of the ring is copied into a reused scratch buffer. Nothing is allocated per frame.
+ * <p>
+ * The parser is single-producer: {@link #feed} must only be called by one thread at a time, which is the
+ * case for the receive thread of a {@link tools.vlab.kberry.core.Transport}. No locks are taken; the
+ * counters may be read from any thread.
+ */
 public class FT12StreamParser {
 
-    private final byte[] buffer = new byte[4096];
-    private int writePos = 0;
-
-    // FIXME: das ist nicht Thread Save!
-    private final Queue<byte[]> frames = new ArrayDeque<>();
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final byte ACK = (byte) 0xE5;
+    private static final byte START = 0x68;
+    private static final byte END = 0x16;
+    private static final int MAX_FRAME_SIZE = 6 + 255;
 
     /**
-     * Bytes aus dem Stream zuführen
+     * Receives a complete frame. The bytes are only valid until the method returns. The frame is already
+     * consumed when the handler runs; an exception leaves {@link #feed} and drops the rest of that input.
      */
-    public synchronized void feed(byte[] data, int length) {
-        if (length <= 0) return;
-
-        if (writePos + length > buffer.length) {
-            // Buffer-Overflow → Resync
-            writePos = 0;
-        }
-
-        System.arraycopy(data, 0, buffer, writePos, length);
-        writePos += length;
-
-        parse();
+    @FunctionalInterface
+    public interface FrameHandler {
+        void frame(byte[] buffer, int offset, int length);
     }
 
-    public synchronized void feed(byte[] data) {
-        int length = data.length;
+    private final byte[] ring;
+    private final int mask;
+    private final byte[] scratch = new byte[MAX_FRAME_SIZE];
+    private long head = 0;
+    private long tail = 0;
+    private boolean resyncing = false;
+
+    // Nur der Producer schreibt, volatile reicht für die Sichtbarkeit
+    @Getter
+    private volatile long frames = 0;
+    @Getter
+    private volatile long acks = 0;
+    @Getter
+    private volatile long resyncs = 0;
+    @Getter
+    private volatile long discardedBytes = 0;
+    @Getter
+    private volatile long checksumErrors = 0;
+
+    public FT12StreamParser() {
+        this(DEFAULT_CAPACITY);
+    }
 
-        if (writePos + length > buffer.length) {
-            // Buffer-Overflow → Resync
-            writePos = 0;
+    /**
+     * @param capacity ring size, a power of two that holds at least two maximum sized frames
+     */
+    public FT12StreamParser(int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 2 * MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Capacity must be a power of two >= " + 2 * MAX_FRAME_SIZE + ": " + capacity);
         }
-
-        System.arraycopy(data, 0, buffer, writePos, length);
-        writePos += length;
-
-        parse();
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
     }
 
-    public synchronized byte[] pollFrame() {
-        return frames.poll();
+    public void feed(byte[] data, FrameHandler handler) {
+        feed(data, data.length, handler);
     }
 
-    public byte[] getFrame() {
-        try {
-            return frames.element();
-        } catch (Exception e) {
+    /**
+     * Feeds the first {@code length} bytes of {@code data} and hands every completed frame to the handler.
+     * <p>
+     * Input larger than the free space is processed in parts; after parsing less than one frame stays
+     * buffered, so buffered frames are never dropped.
+     */
+    public void feed(byte[] data, int length, FrameHandler handler) {
+        int offset = 0;
+        while (offset < length) {
+            int n = Math.min(length - offset, ring.length - (int) (tail - head));
+            int start = (int) (tail & mask);
+            int first = Math.min(n, ring.length - start);
+            System.arraycopy(data, offset, ring, start, first);
+            System.arraycopy(data, offset + first, ring, 0, n - first);
+            tail += n;
+            offset += n;
+            parse(handler);
         }
-        return new byte[0];
     }
 
-    private void parse() {
-        int i = 0;
+    /**
+     * Number of buffered bytes of an incomplete frame.
+     */
+    public int buffered() {
+        return (int) (tail - head);
+    }
 
-        while (i < writePos) {
+    private void parse(FrameHandler handler) {
+        while (head < tail) {
+            byte b = at(head);
 
             // -------- ACK --------
-            if (buffer[i] == (byte) 0xE5) {
-                frames.add(new byte[]{(byte) 0xE5});
-                i += 1;
+            if (b == ACK) {
+                resyncing = false;
+                acks++;
+                int at = (int) (head & mask);
+                head++;
+                handler.frame(ring, at, 1);
                 continue;
             }
 
             // -------- DATA FRAME --------
-            if (buffer[i] == 0x68) {
-
-                // Minimum Header prüfen
-                if (i + 3 >= writePos) break;
-
-                byte len1 = buffer[i + 1];
-                byte len2 = buffer[i + 2];
+            if (b == START) {
+                int available = (int) (tail - head);
+                if (available < 4) return;
 
-                if (len1 != len2 || buffer[i + 3] != 0x68) {
-                    i++; // kein gültiger Header → weitersuchen
+                int len = at(head + 1) & 0xFF;
+                if (len == 0 || at(head + 2) != at(head + 1) || at(head + 3) != START) {
+                    discard(); // kein gültiger Header → weitersuchen
                     continue;
                 }
 
-                int frameLength = 6 + (len1 & 0xFF);
+                int frameLength = 6 + len;
+                if (available < frameLength) return; // Frame noch nicht vollständig
 
-                if (i + frameLength > writePos) {
-                    // Frame noch nicht vollständig
-                    break;
+                if (at(head + frameLength - 1) != END) {
+                    discard(); // kein gültiges Ende → Resync
+                    continue;
                 }
-
-                if (buffer[i + frameLength - 1] != 0x16) {
-                    // kein gültiges Ende → Resync
-                    i++;
+                if (checksum(head + 4, len) != at(head + 4 + len)) {
+                    checksumErrors++;
+                    discard();
                     continue;
                 }
 
-                byte[] frame = Arrays.copyOfRange(buffer, i, i + frameLength);
-                frames.add(frame);
-
-                i += frameLength;
+                resyncing = false;
+                frames++;
+                int start = (int) (head & mask);
+                // vor dem Handler weiter: wirft er, wird der Frame beim nächsten feed() nicht erneut geliefert
+                head += frameLength;
+                if (start + frameLength <= ring.length) {
+                    handler.frame(ring, start, frameLength);
+                } else {
+                    int first = ring.length - start;
+                    System.arraycopy(ring, start, scratch, 0, first);
+                    System.arraycopy(ring, 0, scratch, first, frameLength - first);
+                    handler.frame(scratch, 0, frameLength);
+                }
                 continue;
             }
 
             // -------- UNBEKANNTER BYTE → verwerfen --------
-            i++;
+            discard();
         }
+    }
+
+    private byte at(long position) {
+        return ring[(int) (position & mask)];
+    }
+
+    private byte checksum(long from, int count) {
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += at(from + i) & 0xFF;
+        }
+        return (byte) sum;
+    }
 
-        // Restbytes nach vorne schieben
-        if (i > 0) {
-            System.arraycopy(buffer, i, buffer, 0, writePos - i);
-            writePos -= i;
+    private void discard() {
+        if (!resyncing) {
+            resyncing = true;
+            resyncs++;
         }
+        discardedBytes++;
+        head++;
     }
 }
@@ -43,6 +43,22 @@ public enum KnxDatapointType {
         this.type = type;
     }
 
+    /**
+     * Größe des Werts in Bit, wie sie die Datenpunktbeschreibung des Moduls (Werttyp) meldet.
+     */
+    public int sizeInBits() {
+        return switch (this) {
+            case BOOLEAN -> 1;
+            case INT8 -> 4;
+            case CHAR, UINT8, SINT8, SCENE_NUMBER, KNX_ACCESS, HVAC_MODE -> 8;
+            case UINT16, SINT16, FLOAT9 -> 16;
+            case TIME, DATE, RGB -> 24;
+            case UINT32, SINT32, FLOAT32 -> 32;
+            case DATETIME -> 64;
+            case STRING_14 -> 112;
+        };
+    }
+
     // --- DEKODIERUNGSMETHODEN ---
 
     // Die Prüfungen stellen nur sicher, dass die DPT Hauptnummer übereinstimmt, nicht die Enum-Konstante selbst.
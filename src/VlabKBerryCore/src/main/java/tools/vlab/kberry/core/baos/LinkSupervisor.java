@@ -0,0 +1,268 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.vlab.kberry.core.baos.messages.os.GetServerItem;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches the health of the link to the BAOS module and brings it back after a failure.
+ * <p>
+ * The link counts as lost after {@code maxTimeouts} response timeouts in a row; a line without any frame
+ * for {@code probeInterval} is probed with a GetServerItem request first. A lost link is reopened with
+ * exponential backoff and jitter. After a reconnect, a module reset ({@code TIME_SINCE_RESET} going
+ * backwards) or the KNX bus coming back ({@code BUS_CONNECTION_STATE}) only the subscribed datapoints are
+ * read back, see {@link Link#resync()}.
+ */
+public class LinkSupervisor {
+
+    private static final Logger Log = LoggerFactory.getLogger(LinkSupervisor.class);
+
+    public enum State {
+        CONNECTED,
+        RECONNECTING,
+        BUS_LOST
+    }
+
+    /**
+     * What the supervisor needs from the connection.
+     */
+    interface Link {
+
+        /**
+         * Closes and reopens the transport and resets the module link.
+         *
+         * @return true if the module acknowledged the reset
+         */
+        boolean relink();
+
+        /**
+         * Asks the module for TIME_SINCE_RESET and BUS_CONNECTION_STATE, the answer is passed to
+         * {@link #onServerItem(GetServerItem.Response.ServerItem)}.
+         */
+        void probe() throws TimeoutException;
+
+        /**
+         * Time since the last frame from the module came in.
+         */
+        long nanosSinceLastFrame();
+
+        /**
+         * Reads the subscribed datapoints back and passes changed values on.
+         */
+        void resync() throws BAOSReadException;
+    }
+
+    /**
+     * @param reconnects      links brought back
+     * @param failedAttempts  reconnect attempts that failed
+     * @param moduleResets    resets of the module seen via TIME_SINCE_RESET
+     * @param busLosses       times the module reported the KNX bus as lost
+     * @param resyncs         datapoint read backs after a failure
+     * @param lastRecoveryMs  time from detecting the lost link until it was back, last failure
+     * @param meanRecoveryMs  mean time to recovery
+     * @param maxRecoveryMs   longest time to recovery
+     */
+    public record Stats(State state, long reconnects, long failedAttempts, long moduleResets, long busLosses,
+                        long resyncs, double lastRecoveryMs, double meanRecoveryMs, double maxRecoveryMs) {
+    }
+
+    private final Link link;
+    @Setter
+    private volatile Duration checkInterval = Duration.ofMillis(200);
+    @Setter
+    private volatile Duration probeInterval = Duration.ofSeconds(10);
+    @Setter
+    private volatile int maxTimeouts = 3;
+    @Setter
+    private volatile Duration backoffBase = Duration.ofMillis(250);
+    @Setter
+    private volatile Duration backoffMax = Duration.ofSeconds(30);
+
+    @Getter
+    private volatile State state = State.CONNECTED;
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private volatile boolean resyncPending = false;
+    private volatile long lastTimeSinceReset = -1;
+    private ScheduledExecutorService executor;
+    private long downSinceNanos;
+    private int attempts;
+
+    private long reconnects, failedAttempts, moduleResets, busLosses, resyncs;
+    private long lastRecoveryNanos, recoveryNanos, maxRecoveryNanos;
+
+    LinkSupervisor(Link link) {
+        this.link = link;
+    }
+
+    public synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "baos-supervisor");
+            t.setDaemon(true);
+            return t;
+        });
+        timeouts.set(0);
+        executor.schedule(this::tick, checkInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * A response arrived in time.
+     */
+    public void onResponse() {
+        timeouts.set(0);
+    }
+
+    /**
+     * A request got no response in time.
+     */
+    public void onTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    /**
+     * Server item from an indication or a probe response.
+     */
+    public void onServerItem(GetServerItem.Response.ServerItem item) {
+        switch (item.id()) {
+            case TIME_SINCE_RESET -> {
+                long timeSinceReset = ByteUtil.uInt32(item.data(), 0);
+                long previous = lastTimeSinceReset;
+                lastTimeSinceReset = timeSinceReset;
+                if (previous >= 0 && timeSinceReset < previous) {
+                    Log.warn("BAOS module was reset [time since reset {} < {}]", timeSinceReset, previous);
+                    synchronized (this) {
+                        moduleResets++;
+                    }
+                    resyncPending = true;
+                }
+            }
+            case BUS_CONNECTION_STATE -> {
+                boolean connected = item.boolData();
+                if (!connected && state == State.CONNECTED) {
+                    Log.warn("KNX bus connection lost");
+                    synchronized (this) {
+                        busLosses++;
+                    }
+                    state = State.BUS_LOST;
+                } else if (connected && state == State.BUS_LOST) {
+                    Log.info("KNX bus connection back");
+                    state = State.CONNECTED;
+                    resyncPending = true;
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state, reconnects, failedAttempts, moduleResets, busLosses, resyncs,
+                lastRecoveryNanos / 1e6,
+                reconnects == 0 ? 0 : recoveryNanos / 1e6 / reconnects,
+                maxRecoveryNanos / 1e6);
+    }
+
+    private void tick() {
+        long delay = checkInterval.toNanos();
+        try {
+            if (state == State.RECONNECTING) {
+                delay = reconnect();
+            } else if (timeouts.get() >= maxTimeouts) {
+                Log.warn("BAOS link lost [{} timeouts in a row], reconnecting", timeouts.get());
+                state = State.RECONNECTING;
+                downSinceNanos = System.nanoTime();
+                attempts = 0;
+                delay = 0;
+            } else {
+                if (link.nanosSinceLastFrame() > probeInterval.toNanos()) probe();
+                if (resyncPending) resync();
+            }
+        } catch (RuntimeException e) {
+            Log.error("Link supervision failed", e);
+        } finally {
+            synchronized (this) {
+                if (executor != null && !executor.isShutdown()) {
+                    executor.schedule(this::tick, delay, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private long reconnect() {
+        if (!link.relink()) {
+            attempts++;
+            synchronized (this) {
+                failedAttempts++;
+            }
+            long delay = backoff(attempts);
+            Log.info("Reconnect attempt {} failed, next in {}ms", attempts, TimeUnit.NANOSECONDS.toMillis(delay));
+            return delay;
+        }
+        long recovery = System.nanoTime() - downSinceNanos;
+        synchronized (this) {
+            reconnects++;
+            lastRecoveryNanos = recovery;
+            recoveryNanos += recovery;
+            maxRecoveryNanos = Math.max(maxRecoveryNanos, recovery);
+        }
+        Log.info("BAOS link back after {}ms and {} failed attempts", TimeUnit.NANOSECONDS.toMillis(recovery), attempts);
+        timeouts.set(0);
+        state = State.CONNECTED;
+        // Modul hat evtl. neu gestartet oder Indications gingen verloren
+        resyncPending = true;
+        resync();
+        return checkInterval.toNanos();
+    }
+
+    /**
+     * Exponential backoff with jitter: half of {@code base * 2^(attempt-1)} (at most {@code max}) fixed,
+     * the other half random, so several connections do not retry in lockstep.
+     */
+    long backoff(int attempt) {
+        long ceiling = backoffMax.toNanos();
+        long delay = backoffBase.toNanos() << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > ceiling) delay = ceiling;
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void probe() {
+        try {
+            link.probe();
+        } catch (TimeoutException e) {
+            Log.info("BAOS link probe: {}", e.getMessage());
+        }
+    }
+
+    private void resync() {
+        try {
+            link.resync();
+            resyncPending = false;
+            synchronized (this) {
+                resyncs++;
+            }
+        } catch (BAOSReadException e) {
+            // beim nächsten Durchlauf erneut versuchen
+            Log.warn("Resync failed: {}", e.getMessage());
+        }
+    }
+}
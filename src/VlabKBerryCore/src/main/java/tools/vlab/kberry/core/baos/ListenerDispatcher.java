@@ -0,0 +1,143 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs listener callbacks with one serial mailbox per key (datapoint or server item).
+ * <p>
+ * Callbacks of one key run one after another in the order they were posted, different keys run in
+ * parallel on virtual threads. A mailbox holds at most {@code capacity} pending callbacks, on overflow
+ * the oldest pending one is dropped. With conflation a new callback replaces a pending, not yet started
+ * one of the same key, so a slow listener only sees the latest value.
+ */
+public class ListenerDispatcher {
+
+    private static final Logger Log = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+    /**
+     * @param depth          callbacks currently pending
+     * @param maxDepth       highest depth of a mailbox seen
+     * @param dispatched     callbacks started
+     * @param conflated      pending callbacks replaced by a newer one
+     * @param dropped        pending callbacks dropped because the mailbox was full
+     * @param meanLatencyMs  mean time between post and start of a callback
+     * @param maxLatencyMs   longest time between post and start of a callback
+     */
+    public record Stats(int depth, int maxDepth, long dispatched, long conflated, long dropped,
+                        double meanLatencyMs, double maxLatencyMs) {
+    }
+
+    private record Pending(Runnable callback, long postedNanos) {
+    }
+
+    private static final class Mailbox {
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private int maxDepth;
+        private long dispatched, conflated, dropped, latencyNanos, maxLatencyNanos;
+    }
+
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("baos-listener-", 0).factory());
+    private final int capacity;
+    @Setter
+    private volatile boolean conflate = false;
+
+    public ListenerDispatcher(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Mailbox capacity must be >= 1: " + capacity);
+        this.capacity = capacity;
+    }
+
+    public void post(int key, Runnable callback) {
+        var mailbox = mailboxes.computeIfAbsent(key, k -> new Mailbox());
+        boolean start;
+        synchronized (mailbox) {
+            if (conflate && !mailbox.queue.isEmpty()) {
+                mailbox.queue.pollLast();
+                mailbox.conflated++;
+            } else if (mailbox.queue.size() >= capacity) {
+                mailbox.queue.pollFirst();
+                mailbox.dropped++;
+            }
+            mailbox.queue.addLast(new Pending(callback, System.nanoTime()));
+            mailbox.maxDepth = Math.max(mailbox.maxDepth, mailbox.queue.size());
+            start = !mailbox.scheduled;
+            mailbox.scheduled = true;
+        }
+        if (start) {
+            try {
+                executor.execute(() -> drain(mailbox));
+            } catch (RejectedExecutionException e) {
+                Log.debug("Listener dispatcher stopped, dropping callback for [{}]", key);
+            }
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            Pending next;
+            synchronized (mailbox) {
+                next = mailbox.queue.pollFirst();
+                if (next == null) {
+                    mailbox.scheduled = false;
+                    return;
+                }
+                long latency = System.nanoTime() - next.postedNanos();
+                mailbox.dispatched++;
+                mailbox.latencyNanos += latency;
+                mailbox.maxLatencyNanos = Math.max(mailbox.maxLatencyNanos, latency);
+            }
+            try {
+                next.callback().run();
+            } catch (RuntimeException e) {
+                Log.error("Listener failed", e);
+            }
+        }
+    }
+
+    public Stats stats(int key) {
+        var mailbox = mailboxes.get(key);
+        if (mailbox == null) return new Stats(0, 0, 0, 0, 0, 0, 0);
+        synchronized (mailbox) {
+            return new Stats(mailbox.queue.size(), mailbox.maxDepth, mailbox.dispatched, mailbox.conflated,
+                    mailbox.dropped, mailbox.dispatched == 0 ? 0 : mailbox.latencyNanos / 1e6 / mailbox.dispatched,
+                    mailbox.maxLatencyNanos / 1e6);
+        }
+    }
+
+    /**
+     * All mailboxes together.
+     */
+    public Stats stats() {
+        int depth = 0, maxDepth = 0;
+        long dispatched = 0, conflated = 0, dropped = 0, latencyNanos = 0, maxLatencyNanos = 0;
+        for (var mailbox : mailboxes.values()) {
+            synchronized (mailbox) {
+                depth += mailbox.queue.size();
+                maxDepth = Math.max(maxDepth, mailbox.maxDepth);
+                dispatched += mailbox.dispatched;
+                conflated += mailbox.conflated;
+                dropped += mailbox.dropped;
+                latencyNanos += mailbox.latencyNanos;
+                maxLatencyNanos = Math.max(maxLatencyNanos, mailbox.maxLatencyNanos);
+            }
+        }
+        return new Stats(depth, maxDepth, dispatched, conflated, dropped,
+                dispatched == 0 ? 0 : latencyNanos / 1e6 / dispatched, maxLatencyNanos / 1e6);
+    }
+
+    /**
+     * Pending callbacks are dropped, running ones are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,311 @@
+package tools.vlab.kberry.core.baos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single owner of the BAOS link.
+ * <p>
+ * One thread takes the request/response exchanges from two lanes and runs them one after the other;
+ * with a pipeline window larger than 1 it hands them to virtual threads once the {@link RequestWindow}
+ * has a slot. Reads (and other requests of callers) are submitted to a lock-free queue, writes come from
+ * the {@link WriteLane}. When both lanes have work they take turns, so a storm of reads cannot hold back
+ * light commands and a burst of writes does not starve reads.
+ * <p>
+ * An exchange is one request and its response. Callers wait for follow-ups (e.g. a datapoint still in
+ * progress) outside of the actor, the link is free in between. An exchange whose key is still in flight
+ * is put aside and started once the key is free, the owner goes on with the others meanwhile. An
+ * exchange that throws fails on its own, the owner keeps running.
+ */
+public class RequestActor {
+
+    private static final Logger Log = LoggerFactory.getLogger(RequestActor.class);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(30);
+
+    public interface Exchange<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Source of the write lane.
+     */
+    public interface WriteLane {
+        /**
+         * The next write to send now, null if nothing is queued or the pacer holds it back.
+         */
+        Task poll();
+
+        /**
+         * How long the owner may sleep before {@link #poll()} could return a write, e.g. the pacing delay.
+         */
+        long readyInNanos();
+    }
+
+    /**
+     * @param key       window key of the request, see {@link RequestWindow}
+     * @param exclusive runs alone, e.g. a link reset
+     * @param fail      fails the request instead of running it, e.g. when the link stops first
+     */
+    public record Task(int key, boolean exclusive, Runnable body, Consumer<Exception> fail) {
+
+        public Task(int key, boolean exclusive, Runnable body) {
+            this(key, exclusive, body, e -> {
+            });
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Task> reads = new ConcurrentLinkedQueue<>();
+    // nur der Owner-Thread: Exchanges, deren Key gerade in Arbeit ist, in Ankunftsreihenfolge
+    private final ArrayDeque<Task> deferred = new ArrayDeque<>();
+    private final WriteLane writes;
+    private final Supplier<RequestWindow> window;
+    private final ExecutorService pipeline;
+    private final long callTimeoutNanos;
+    private volatile Thread owner;
+    private volatile boolean running;
+
+    /**
+     * @param window   current request window, looked up for every exchange
+     * @param pipeline runs exchanges while the owner goes on, used when the window is larger than 1
+     */
+    public RequestActor(WriteLane writes, Supplier<RequestWindow> window, ExecutorService pipeline) {
+        this(writes, window, pipeline, DEFAULT_CALL_TIMEOUT);
+    }
+
+    /**
+     * @param callTimeout how long {@link #call(int, Exchange)} waits for an exchange, queueing included
+     */
+    public RequestActor(WriteLane writes, Supplier<RequestWindow> window, ExecutorService pipeline, Duration callTimeout) {
+        this.writes = writes;
+        this.window = window;
+        this.pipeline = pipeline;
+        this.callTimeoutNanos = callTimeout.toNanos();
+    }
+
+    public void start() {
+        running = true;
+        owner = Thread.ofPlatform().name("baos-link").daemon().start(this::run);
+    }
+
+    /**
+     * Stops the owner thread; exchanges not yet started fail. The owner fails them itself when it exits,
+     * if it is still inside an exchange after 5s that happens once the exchange is done.
+     */
+    public void stop() {
+        running = false;
+        var thread = owner;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                Log.warn("BAOS link owner still busy, pending exchanges fail when it exits");
+                return;
+            }
+        }
+        // nach dem Owner eingereihte Reads; deferred gehört dem Owner und ist mit ihm geleert
+        failAll(reads);
+    }
+
+    /**
+     * Wakes the owner, e.g. after a write was queued.
+     */
+    public void wake() {
+        var thread = owner;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    public <T> CompletableFuture<T> submit(int key, Exchange<T> exchange) {
+        return submit(key, false, exchange);
+    }
+
+    public <T> CompletableFuture<T> submit(int key, boolean exclusive, Exchange<T> exchange) {
+        var result = new CompletableFuture<T>();
+        reads.add(new Task(key, exclusive, () -> {
+            // der Aufrufer hat aufgegeben, nichts mehr senden
+            if (result.isDone()) return;
+            try {
+                result.complete(exchange.run());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }, result::completeExceptionally));
+        if (!running) {
+            // stop() ist schon durch, niemand arbeitet die Queue mehr ab
+            failAll(reads);
+        }
+        wake();
+        return result;
+    }
+
+    /**
+     * Submits the exchange and waits for it, at most the call timeout; an exchange that has not started
+     * by then is dropped.
+     */
+    public <T> T call(int key, Exchange<T> exchange) throws TimeoutException {
+        return call(key, false, exchange);
+    }
+
+    public <T> T call(int key, boolean exclusive, Exchange<T> exchange) throws TimeoutException {
+        var result = submit(key, exclusive, exchange);
+        try {
+            return result.get(callTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting for the BAOS link");
+        } catch (java.util.concurrent.TimeoutException e) {
+            result.cancel(false);
+            throw new TimeoutException(String.format("BAOS link did not run the request within %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos)));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException timeout) throw timeout;
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void run() {
+        boolean readTurn = true;
+        try {
+            while (running) {
+                Task task = nextDeferred();
+                if (task != null) {
+                    dispatch(task);
+                    continue;
+                }
+                task = readTurn ? reads.poll() : null;
+                boolean write = false;
+                if (task == null) {
+                    task = writes.poll();
+                    write = task != null;
+                }
+                if (task == null && !readTurn) task = reads.poll();
+                if (task == null) {
+                    LockSupport.parkNanos(this, Math.min(MAX_PARK_NANOS, writes.readyInNanos()));
+                    if (Thread.interrupted()) break;
+                    continue;
+                }
+                // nach einem Write sind zuerst die Reads dran und umgekehrt
+                readTurn = write;
+                if (hasDeferred(task.key())) {
+                    // nicht an wartenden Exchanges desselben Keys vorbei
+                    deferred.add(task);
+                } else {
+                    dispatch(task);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.error("BAOS link owner stopped", e);
+        }
+        failAll(deferred);
+        failAll(reads);
+        Log.info("BAOS link owner stopped");
+    }
+
+    /**
+     * Fails the exchanges that did not start, without sending anything.
+     */
+    private static void failAll(Queue<Task> tasks) {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.fail().accept(new IllegalStateException("BAOS link stopped"));
+            } catch (RuntimeException e) {
+                Log.error("Failing BAOS exchange [key {}] failed", task.key(), e);
+            }
+        }
+    }
+
+    /**
+     * The first put aside exchange whose key is free again, null if none.
+     */
+    private Task nextDeferred() {
+        if (deferred.isEmpty()) return null;
+        var window = this.window.get();
+        var blocked = new HashSet<Integer>();
+        for (var iterator = deferred.iterator(); iterator.hasNext(); ) {
+            var task = iterator.next();
+            if (blocked.add(task.key()) && !window.isBusy(task.key())) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasDeferred(int key) {
+        for (var task : deferred) {
+            if (task.key() == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts the exchange, or puts it aside while a request with the same key is in flight.
+     */
+    private void dispatch(Task task) throws InterruptedException {
+        var window = this.window.get();
+        if (task.exclusive()) {
+            window.acquireExclusive();
+            try {
+                runSafely(task);
+            } finally {
+                window.releaseExclusive();
+            }
+            return;
+        }
+        if (!window.tryAcquire(task.key())) {
+            deferred.add(task);
+            return;
+        }
+        if (window.getSize() == 1) {
+            try {
+                runSafely(task);
+            } finally {
+                window.release(task.key());
+            }
+        } else {
+            // Pipelined: das nächste Exchange startet, während dieses auf die Antwort wartet
+            pipeline.execute(() -> {
+                try {
+                    runSafely(task);
+                } finally {
+                    window.release(task.key());
+                    // zurückgestellte Exchanges auf diesem Key können jetzt starten
+                    wake();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the exchange; a failing one must not take the owner (or a pipeline thread) down with it.
+     */
+    private static void runSafely(Task task) {
+        try {
+            task.body().run();
+        } catch (RuntimeException e) {
+            Log.error("BAOS exchange [key {}] failed", task.key(), e);
+        }
+    }
+}
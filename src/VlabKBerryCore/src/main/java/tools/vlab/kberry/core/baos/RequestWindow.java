@@ -0,0 +1,114 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Limits the BAOS requests in flight.
+ * <p>
+ * At most {@code size} requests wait for their response at the same time, and never two with the same
+ * key: responses are correlated by service and id, so requests on the same datapoint or server item stay
+ * one after another. {@link #acquireExclusive()} waits until nothing is in flight and blocks new
+ * requests, e.g. for a link reset.
+ */
+public class RequestWindow {
+
+    private static final int FREE = -1;
+
+    @Getter
+    private final int size;
+    private final int[] keys;
+    private int inFlight = 0;
+    private boolean exclusive = false;
+
+    public RequestWindow(int size) {
+        if (size < 1) throw new IllegalArgumentException("Window size must be >= 1: " + size);
+        this.size = size;
+        this.keys = new int[size];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Key of a datapoint request.
+     */
+    public static int dataPoint(int id) {
+        return id;
+    }
+
+    /**
+     * Key of a server item request.
+     */
+    public static int serverItem(int id) {
+        return 0x10000 | id;
+    }
+
+    public synchronized void acquire(int key) throws InterruptedException {
+        while (exclusive || inFlight >= size || indexOf(key) >= 0) {
+            wait();
+        }
+        keys[indexOf(FREE)] = key;
+        inFlight++;
+    }
+
+    /**
+     * Like {@link #acquire(int)}, but does not wait for a request with the same key: returns false right
+     * away while one is in flight. Still waits for a free slot.
+     */
+    public synchronized boolean tryAcquire(int key) throws InterruptedException {
+        if (indexOf(key) >= 0) return false;
+        while (exclusive || inFlight >= size) {
+            wait();
+        }
+        if (indexOf(key) >= 0) return false;
+        keys[indexOf(FREE)] = key;
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * A request with this key is in flight.
+     */
+    public synchronized boolean isBusy(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public synchronized void release(int key) {
+        int index = indexOf(key);
+        if (index < 0) return;
+        keys[index] = FREE;
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized void acquireExclusive() throws InterruptedException {
+        while (exclusive) {
+            wait();
+        }
+        exclusive = true;
+        try {
+            while (inFlight > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            releaseExclusive();
+            throw e;
+        }
+    }
+
+    public synchronized void releaseExclusive() {
+        exclusive = false;
+        notifyAll();
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private int indexOf(int key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,232 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlates object server responses with waiting requests.
+ * <p>
+ * Entries are keyed by {@link #key(int, int)} = {@code (responseCode << 16) | id} in an open addressing
+ * table with primitive int keys. An entry is in one of three states:
+ * <ul>
+ *     <li>WAITING: a request waits for the response</li>
+ *     <li>PARKED: a response arrived without waiting request (e.g. a follow-up while the module is
+ *     still updating a datapoint) and is kept for the next request with the same key</li>
+ *     <li>ABANDONED: the waiting request timed out, a response arriving now is late</li>
+ * </ul>
+ * Every entry has a deadline, {@link #expire()} removes entries past it. Parked responses nobody picked
+ * up count as orphaned, responses for abandoned requests as late.
+ */
+public class ResponseTable {
+
+    private static final Logger Log = LoggerFactory.getLogger(ResponseTable.class);
+    private static final int EMPTY = -1;
+
+    private enum State {WAITING, PARKED, ABANDONED}
+
+    private static final class Entry {
+        private final CompletableFuture<FT12Frame.Data> future;
+        private State state;
+        private long deadlineNanos;
+
+        private Entry(CompletableFuture<FT12Frame.Data> future, State state, long deadlineNanos) {
+            this.future = future;
+            this.state = state;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final long retentionNanos;
+    private int[] keys;
+    private Entry[] entries;
+    private int size = 0;
+
+    @Getter
+    private volatile long orphaned = 0;
+    @Getter
+    private volatile long late = 0;
+    @Getter
+    private volatile long expired = 0;
+
+    /**
+     * @param retentionMs how long parked responses and abandoned requests are kept
+     */
+    public ResponseTable(int retentionMs) {
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMs);
+        allocate(16);
+    }
+
+    public static int key(int responseCode, int id) {
+        return (responseCode << 16) | (id & 0xFFFF);
+    }
+
+    /**
+     * Registers a request waiting for the response with the given key. A parked response is handed out
+     * right away; requests with the same key share one future.
+     */
+    public synchronized CompletableFuture<FT12Frame.Data> register(int key, int timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) + retentionNanos;
+        int slot = find(key);
+        if (slot >= 0) {
+            var entry = entries[slot];
+            if (entry.state == State.PARKED) {
+                removeSlot(slot);
+                return entry.future;
+            }
+            entry.state = State.WAITING;
+            entry.deadlineNanos = Math.max(entry.deadlineNanos, deadline);
+            return entry.future;
+        }
+        var entry = new Entry(new CompletableFuture<>(), State.WAITING, deadline);
+        insert(key, entry);
+        return entry.future;
+    }
+
+    /**
+     * Hands a received response to its waiting request, or parks it.
+     */
+    public void complete(int key, FT12Frame.Data data) {
+        CompletableFuture<FT12Frame.Data> future;
+        synchronized (this) {
+            int slot = find(key);
+            if (slot < 0) {
+                insert(key, new Entry(CompletableFuture.completedFuture(data), State.PARKED, System.nanoTime() + retentionNanos));
+                return;
+            }
+            var entry = entries[slot];
+            switch (entry.state) {
+                case WAITING -> {
+                    removeSlot(slot);
+                    future = entry.future;
+                }
+                case ABANDONED -> {
+                    removeSlot(slot);
+                    late++;
+                    if (Log.isDebugEnabled()) Log.debug("Late response {}", data.toHex());
+                    return;
+                }
+                default -> {
+                    // Neuere Antwort ersetzt die nicht abgeholte
+                    orphaned++;
+                    entries[slot] = new Entry(CompletableFuture.completedFuture(data), State.PARKED, System.nanoTime() + retentionNanos);
+                    return;
+                }
+            }
+        }
+        future.complete(data);
+    }
+
+    /**
+     * Removes the entry of a completed request, or marks it abandoned after a timeout so a late response
+     * is recognized.
+     */
+    public synchronized void release(int key, CompletableFuture<FT12Frame.Data> future, boolean timedOut) {
+        int slot = find(key);
+        if (slot < 0 || entries[slot].future != future) return;
+        if (timedOut && !future.isDone()) {
+            entries[slot].state = State.ABANDONED;
+            entries[slot].deadlineNanos = System.nanoTime() + retentionNanos;
+        } else {
+            removeSlot(slot);
+        }
+    }
+
+    /**
+     * Removes all entries past their deadline. Waiting requests still registered are failed with a timeout.
+     */
+    public void expire() {
+        long now = System.nanoTime();
+        List<CompletableFuture<FT12Frame.Data>> timedOut = new ArrayList<>();
+        synchronized (this) {
+            int slot = 0;
+            while (slot < keys.length) {
+                var entry = entries[slot];
+                if (entry == null || now - entry.deadlineNanos < 0) {
+                    slot++;
+                    continue;
+                }
+                switch (entry.state) {
+                    case PARKED -> orphaned++;
+                    case WAITING -> timedOut.add(entry.future);
+                    case ABANDONED -> {
+                    }
+                }
+                expired++;
+                // nach dem Entfernen kann ein anderer Eintrag in diesen Slot gerückt sein
+                removeSlot(slot);
+            }
+        }
+        timedOut.forEach(future -> future.completeExceptionally(new TimeoutException("Response expired")));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // -------- Open Addressing mit linearer Sondierung --------
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        entries = new Entry[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9 >>> 16) & (keys.length - 1);
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return slot;
+        }
+        return -1;
+    }
+
+    private void insert(int key, Entry entry) {
+        if ((size + 1) * 2 > keys.length) {
+            int[] oldKeys = keys;
+            Entry[] oldEntries = entries;
+            allocate(keys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) insert(oldKeys[i], oldEntries[i]);
+            }
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key);
+        while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        entries[slot] = entry;
+        size++;
+    }
+
+    private void removeSlot(int slot) {
+        int mask = keys.length - 1;
+        keys[slot] = EMPTY;
+        entries[slot] = null;
+        size--;
+        // folgende Einträge der Sondierungskette nachrücken lassen (backward shift)
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = slotOf(keys[next]);
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                entries[slot] = entries[next];
+                keys[next] = EMPTY;
+                entries[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package tools.vlab.kberry.core.baos;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Response timeout derived from measured round-trip times, like the TCP retransmission timeout (RFC 6298).
+ * <p>
+ * Keeps a smoothed RTT and its mean deviation; the timeout is {@code srtt + 4 * rttvar}, kept between a
+ * floor and a ceiling. Until the first response is measured the initial timeout applies. Every timeout
+ * doubles the current value (up to the ceiling) until the next measured response, so a module that got
+ * slow is not flooded with requests timing out too early.
+ */
+public class RttEstimator {
+
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+    private static final int K = 4;
+    /**
+     * Upper bounds of the histogram buckets in ms, the last bucket takes everything above.
+     */
+    public static final long[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, Long.MAX_VALUE};
+
+    /**
+     * @param samples    responses measured
+     * @param timeouts   requests that got no response in time
+     * @param srttMs     smoothed round-trip time
+     * @param rttVarMs   mean deviation of the round-trip time
+     * @param timeoutMs  current timeout
+     * @param maxMs      slowest response measured
+     * @param histogram  responses per bucket of {@link #BUCKETS_MS}
+     */
+    public record Stats(long samples, long timeouts, double srttMs, double rttVarMs, int timeoutMs, double maxMs,
+                        long[] histogram) {
+
+        /**
+         * Upper bound of the bucket holding the given share of the responses, e.g. 0.99; 0 without samples.
+         */
+        public long percentileMs(double share) {
+            long rank = (long) Math.ceil(share * samples);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) return BUCKETS_MS[i];
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("srtt %.1fms rttvar %.1fms timeout %dms samples %d timeouts %d max %.1fms %s",
+                    srttMs, rttVarMs, timeoutMs, samples, timeouts, maxMs, Arrays.toString(histogram));
+        }
+    }
+
+    private final int initialMs;
+    private volatile int floorMs;
+    private volatile int ceilingMs;
+    private double srttNanos;
+    private double rttVarNanos;
+    private int timeoutMs;
+    private long samples, timeouts;
+    private long maxNanos;
+    private final long[] histogram = new long[BUCKETS_MS.length];
+
+    /**
+     * @param initialMs timeout until the first response is measured
+     * @param floorMs   shortest timeout
+     * @param ceilingMs longest timeout
+     */
+    public RttEstimator(int initialMs, int floorMs, int ceilingMs) {
+        this.initialMs = initialMs;
+        this.floorMs = floorMs;
+        this.ceilingMs = ceilingMs;
+        this.timeoutMs = clamp(initialMs);
+    }
+
+    public void setBounds(Duration floor, Duration ceiling) {
+        if (floor.compareTo(ceiling) > 0) throw new IllegalArgumentException("Floor " + floor + " above ceiling " + ceiling);
+        synchronized (this) {
+            this.floorMs = (int) floor.toMillis();
+            this.ceilingMs = (int) ceiling.toMillis();
+            this.timeoutMs = samples == 0 ? clamp(initialMs) : clamp(timeoutMs);
+        }
+    }
+
+    /**
+     * Timeout for the next request.
+     */
+    public synchronized int timeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * A response arrived {@code rttNanos} after its request was sent.
+     */
+    public synchronized void onResponse(long rttNanos) {
+        if (samples == 0) {
+            srttNanos = rttNanos;
+            rttVarNanos = rttNanos / 2.0;
+        } else {
+            rttVarNanos = (1 - BETA) * rttVarNanos + BETA * Math.abs(srttNanos - rttNanos);
+            srttNanos = (1 - ALPHA) * srttNanos + ALPHA * rttNanos;
+        }
+        samples++;
+        maxNanos = Math.max(maxNanos, rttNanos);
+        histogram[bucket(rttNanos)]++;
+        timeoutMs = clamp((long) Math.ceil((srttNanos + K * rttVarNanos) / 1e6));
+    }
+
+    /**
+     * A request got no response within {@link #timeoutMs()}.
+     */
+    public synchronized void onTimeout() {
+        timeouts++;
+        timeoutMs = clamp(2L * timeoutMs);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(samples, timeouts, srttNanos / 1e6, rttVarNanos / 1e6, timeoutMs, maxNanos / 1e6, histogram.clone());
+    }
+
+    private int clamp(long ms) {
+        return (int) Math.max(floorMs, Math.min(ceilingMs, ms));
+    }
+
+    private static int bucket(long rttNanos) {
+        long ms = rttNanos / 1_000_000;
+        int i = 0;
+        while (ms >= BUCKETS_MS[i]) i++;
+        return i;
+    }
+}
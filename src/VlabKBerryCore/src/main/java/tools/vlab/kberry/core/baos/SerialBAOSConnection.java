@@ -1,95 +1,332 @@
 package tools.vlab.kberry.core.baos;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tools.vlab.kberry.core.ReloadDevice;
 import tools.vlab.kberry.core.SerialPort;
+import tools.vlab.kberry.core.Transport;
+import tools.vlab.kberry.core.WireCapture;
 import tools.vlab.kberry.core.baos.messages.FT12Frame;
 import tools.vlab.kberry.core.baos.messages.os.*;
+import tools.vlab.kberry.core.baos.messages.os.Error;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 public class SerialBAOSConnection {
 
     private static final Logger Log = LoggerFactory.getLogger(SerialBAOSConnection.class);
-    private final static int WAIT_RETRY_MS = 100;
+    private static final int READY_POLL_MS = 100;
+    private static final int REPLAY_DEPTH = 32;
+    private static final int SET_TIMEOUT_MS = 5000;
+    private static final int ACK_TIMEOUT_MS = 2000;
+    private static final int TIMEOUT_FLOOR_MS = 250;
 
-    private final SerialPort port;
-    private final int timeout;
-    private final ConcurrentHashMap<ServerItemId, Consumer<GetServerItem.Response.ServerItem>> statusListener = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Integer, Consumer<DataPoint>> valueChangeListener = new ConcurrentHashMap<>();
-    private final LinkedBlockingDeque<DataPointPriority> dataPoints = new LinkedBlockingDeque<>(1000);
+    private final Transport port;
+    private final Map<Service, RttEstimator> rtt = new EnumMap<>(Service.class);
+    private final RttEstimator setRtt;
+    private final RttEstimator ackRtt = new RttEstimator(ACK_TIMEOUT_MS, TIMEOUT_FLOOR_MS, ACK_TIMEOUT_MS);
+    private final ConcurrentHashMap<ServerItemId, Subscribers<GetServerItem.Response.ServerItem>> statusListener = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Subscribers<DataPoint>> valueChangeListener = new ConcurrentHashMap<>();
+    private final TransmitScheduler<DataPointPriority> dataPoints = new TransmitScheduler<>(1000, TransmitScheduler.OverflowPolicy.BLOCK);
 
     private final BAOSWriter writer;
     private final BAOSReader reader;
     private volatile boolean running = false;
-    private final Object writeLock = new Object();
+    private volatile RequestWindow window = new RequestWindow(1);
+    @Getter
+    private final BusPacer pacer = new BusPacer();
+    private volatile int writeBatchSize = 64;
+    private volatile boolean coalesceWrites = false;
+    private final Set<Integer> notCoalesced = ConcurrentHashMap.newKeySet();
+    private volatile WriteJournal journal;
+    // journalisierte Schreibaufträge, die noch nicht in der Queue sind, je Klasse nach Sequenznummer
+    private final EnumMap<TrafficClass, TreeMap<Long, DataPointPriority>> parked = new EnumMap<>(TrafficClass.class);
+    // jüngster wartender Schreibauftrag je Datenpunkt
+    private final HashMap<Integer, Long> parkedByDataPoint = new HashMap<>();
     private final int retries;
     @Setter
     private ReloadDevice reloadDevice;
     private final ExecutorService indicators = Executors.newSingleThreadExecutor();
-    private final ExecutorService requester = Executors.newSingleThreadExecutor();
-    private final ExecutorService listenerExecutor = Executors.newCachedThreadPool();
+    private final ListenerDispatcher listeners = new ListenerDispatcher(64);
+    @Getter
+    private final ValueMirror mirror = new ValueMirror();
+    private volatile Duration mirrorMaxAge = Duration.ZERO;
+    private volatile boolean suppressUnchanged = false;
+    private final ConcurrentHashMap<Integer, CompletableFuture<DataPoint>> readsInFlight = new ConcurrentHashMap<>();
+    private final LongAdder absorbedReads = new LongAdder();
+    private volatile boolean deduplicateReads = true;
+    @Getter
+    private final LinkSupervisor supervisor = new LinkSupervisor(new Supervision());
+    private volatile boolean supervised = false;
+    private volatile Duration readyTimeout = Duration.ofSeconds(3);
+    /**
+     * Time the last {@link #connect()} took from opening the port until the module was ready.
+     */
+    @Getter
+    private volatile Duration connectTime = Duration.ZERO;
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final RequestActor actor;
 
     public SerialBAOSConnection(String device, int timeout, int retries) {
-        port = new SerialPort(device, 19200);
+        this(new SerialPort(device, 19200), timeout, retries);
+    }
 
-        this.timeout = timeout;
+    /**
+     * Creates a connection on top of an arbitrary transport, e.g. a {@link tools.vlab.kberry.core.LoopbackTransport}
+     * connected to a simulated object server.
+     */
+    public SerialBAOSConnection(Transport port, int timeout, int retries) {
+        this.port = port;
+        for (var service : Service.values()) {
+            // bis zur ersten Messung gelten die bisherigen festen Timeouts, sie bleiben die Obergrenze
+            int initial = service == Service.SET_DP_VALUE ? SET_TIMEOUT_MS : timeout;
+            rtt.put(service, new RttEstimator(initial, Math.min(TIMEOUT_FLOOR_MS, initial), initial));
+        }
+        this.setRtt = rtt.get(Service.SET_DP_VALUE);
         this.retries = retries;
         this.writer = new BAOSWriter(port);
         this.reader = new BAOSReader(port, writer);
+        this.actor = new RequestActor(new Writes(), () -> window, sender);
+        this.dataPoints.setDiscardListener((dp, reason) -> {
+            Log.warn("BAOS queue: dropping datapoint {} [{} {}]", dp, dp.trafficClass(), reason);
+            dp.result().completeExceptionally(new BAOSQueueException(dp.dataPoint().getId(), dp.trafficClass(), reason));
+        });
+        this.dataPoints.setCoalesceKey(dp -> coalesceWrites && !notCoalesced.contains(dp.dataPoint().getId())
+                ? dp.dataPoint().getId()
+                : null);
+        this.dataPoints.setCoalesceListener((replaced, replacement) -> {
+            Log.debug("[{}] Coalesced queued write {} into {}", replaced.dataPoint().getId(), replaced.dataPoint().toHex(), replacement.dataPoint().toHex());
+            follow(replaced, replacement);
+        });
+    }
+
+    /**
+     * A replaced write is done as soon as its successor is.
+     */
+    private static void follow(DataPointPriority replaced, DataPointPriority replacement) {
+        replacement.result().whenComplete((ok, failure) -> {
+            if (failure == null) {
+                replaced.result().complete(null);
+            } else {
+                replaced.result().completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Last value wins: a write replaces a queued, not yet sent write on the same datapoint of the same
+     * class and takes over its queue position (default off). The number of replaced writes is reported
+     * by {@link #queueStats(TrafficClass)}.
+     */
+    public void setCoalesceWrites(boolean coalesceWrites) {
+        this.coalesceWrites = coalesceWrites;
+    }
+
+    /**
+     * Excludes a datapoint from {@link #setCoalesceWrites(boolean) coalescing}, e.g. command style
+     * datapoints (scene activation, stop) where every write counts.
+     */
+    public void setCoalescing(DataPointId id, boolean coalescing) {
+        if (coalescing) {
+            notCoalesced.remove(id.id());
+        } else {
+            notCoalesced.add(id.id());
+        }
+    }
+
+    /**
+     * Store and forward (default none): every write is appended to the journal before it is queued and acked
+     * once it is finished, sent or failed. On a healthy link it is then queued as without journal. While the
+     * link is reconnecting or the module reports the KNX bus as lost, journaled writes wait instead of being
+     * sent, a newer write on a {@link #setCoalesceWrites(boolean) coalesced} datapoint replaces the waiting
+     * one. Afterwards they are sent class by class, higher classes first and in journal order within a
+     * class, at most {@value #REPLAY_DEPTH} at a time in the transmit queue and at the pace of the {@link
+     * BusPacer}.
+     * <p>
+     * Writes the journal recovered from the previous run wait the same way until they are replayed, those
+     * past their max age are dropped. If appending fails (journal full) the write is queued without journal.
+     */
+    public void setJournal(WriteJournal journal) {
+        this.journal = journal;
+        if (journal == null) return;
+        long now = System.currentTimeMillis();
+        for (var entry : journal.recovered()) {
+            if (entry.expiresAtMillis() != 0 && entry.expiresAtMillis() < now) {
+                Log.info("[{}] Dropping expired journaled write {}", entry.dataPoint().getId(), entry.dataPoint().toHex());
+                journal.ack(entry.seq());
+                continue;
+            }
+            long deadline = entry.expiresAtMillis() == 0
+                    ? TransmitScheduler.NO_DEADLINE
+                    : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(entry.expiresAtMillis() - now);
+            var dp = DataPointPriority.of(entry.dataPoint(), entry.trafficClass(), deadline);
+            dp.result().whenComplete((ok, failure) -> {
+                journal.ack(entry.seq());
+                if (failure != null) Log.warn("[{}] Recovered write failed: {}", entry.dataPoint().getId(), failure.getMessage());
+            });
+            park(entry.seq(), dp, entry.coalescible());
+        }
+        actor.wake();
     }
 
+    /**
+     * Maximum number of queued writes of the same class sent together in one SetDatapointValue request
+     * (default 64, further limited by the frame size). 1 sends every write alone.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        if (writeBatchSize < 1) throw new IllegalArgumentException("Batch size must be >= 1: " + writeBatchSize);
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /**
+     * Capacity and overflow policy of the datapoint queue of one class (default 1000, {@code BLOCK} for 1s).
+     */
+    public void configureQueue(TrafficClass trafficClass, int capacity, TransmitScheduler.OverflowPolicy policy) {
+        dataPoints.configure(trafficClass, capacity, policy);
+    }
+
+    /**
+     * Queue depth, drops and wait time of the datapoint queue of one class.
+     */
+    public TransmitScheduler.QueueStats queueStats(TrafficClass trafficClass) {
+        return dataPoints.stats(trafficClass);
+    }
+
+    /**
+     * Number of BAOS requests that may wait for their response at the same time (default 1).
+     * <p>
+     * With a window of 1 every request waits for the response of the previous one. A larger window
+     * pipelines requests on different datapoints, responses are matched out of order by service and id.
+     * Must be set before {@link #connect()}.
+     */
+    public void setPipelineWindow(int size) {
+        if (running) throw new IllegalStateException("Pipeline window must be set before connect");
+        this.window = new RequestWindow(size);
+    }
+
+    public int getPipelineWindow() {
+        return window.getSize();
+    }
+
+    /**
+     * Supervises the link after {@link #connect()}: a stalled or lost link is reopened with backoff, the
+     * subscribed datapoints are read back afterwards (default off). See {@link LinkSupervisor}.
+     */
+    public void setSupervision(boolean supervised) {
+        this.supervised = supervised;
+        if (!running) return;
+        if (supervised) {
+            supervisor.start();
+        } else {
+            supervisor.stop();
+        }
+    }
+
+    /**
+     * Longest wait for the module to answer after the link reset (default 3s). Past it the connection goes
+     * on anyway, like it did with the former fixed wait.
+     */
+    public void setReadyTimeout(Duration readyTimeout) {
+        this.readyTimeout = readyTimeout;
+    }
+
+    /**
+     * Bounds of the response timeouts. Each BAOS service and the FT1.2 ACK get their timeout from the
+     * measured round-trip times ({@link RttEstimator}); by default between 250ms and the timeout given to
+     * the constructor (5s for SetDatapointValue, 2s for the ACK).
+     */
+    public void setTimeoutBounds(Duration floor, Duration ceiling) {
+        rtt.values().forEach(estimator -> estimator.setBounds(floor, ceiling));
+        ackRtt.setBounds(floor, ceiling);
+    }
+
+    /**
+     * Round-trip times and current timeout of a BAOS service.
+     */
+    public RttEstimator.Stats rttStats(Service service) {
+        return rtt.get(service).stats();
+    }
+
+    /**
+     * Time until the module acknowledged a reset or a frame without response.
+     */
+    public RttEstimator.Stats ackRttStats() {
+        return ackRtt.stats();
+    }
+
+    /**
+     * Opens the port and resets the module link, up to 5 attempts, then waits until the module answers
+     * GetServerItem (see {@link #setReadyTimeout(Duration)}).
+     *
+     * @throws TimeoutException if the module did not acknowledge the reset in any attempt
+     */
     public void connect() throws TimeoutException {
+        TimeoutException failure = null;
+        long start = System.nanoTime();
+        boolean started = false;
         for (int retry = 0; retry < 5; retry++) {
             try {
                 if (port.openPort()) {
-                    writer.start();
-                    reader.start();
+                    if (!started) {
+                        writer.start();
+                        reader.start();
+                        started = true;
+                    }
+                    long resetAt = System.currentTimeMillis();
                     writer.sendReset();
-                    reader.waitForAck(2000);
-                    startObserver();
-                    try {
-                        Thread.sleep(3000);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
+                    awaitAck(resetAt);
+                    if (!awaitReady()) {
+                        Log.warn("Module not ready after {}ms, continuing", readyTimeout.toMillis());
                     }
+                    connectTime = Duration.ofNanos(System.nanoTime() - start);
+                    Log.info("Connected in {}ms", connectTime.toMillis());
+                    startObserver();
                     if (reloadDevice != null) {
                         reloadDevice.load();
                     }
+                    if (supervised) supervisor.start();
                     return;
                 } else {
                     throw new RuntimeException("Failed to start serial port");
                 }
             } catch (TimeoutException e) {
                 Log.info("Connection Timeout retry {}", retry);
+                failure = e;
             }
         }
+        throw failure;
     }
 
     public void disconnect() {
 
+        supervisor.stop();
         stopObserver();
 
+        actor.stop();
         indicators.shutdownNow();
-        requester.shutdownNow();
-        listenerExecutor.shutdownNow();
+        listeners.shutdown();
+        sender.shutdown();
         try {
             if (indicators.awaitTermination(5, TimeUnit.SECONDS)) {
                 Log.info("Indicator Thread stopped ...");
             }
-            if (requester.awaitTermination(5, TimeUnit.SECONDS)) {
-                Log.info("Requester Thread stopped ...");
-            }
-            if (listenerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                Log.info("Listener Thread stopped ...");
-            }
         } catch (InterruptedException e) {
             Log.error("Stopp Threads (Requester & Indicator) failed! ", e);
         }
@@ -104,7 +341,7 @@ public class SerialBAOSConnection {
     private void startObserver() {
         running = true;
         indicators.execute(this::indicatorLoop);
-        requester.execute(this::requestLoop);
+        actor.start();
     }
 
     private void stopObserver() {
@@ -120,17 +357,23 @@ public class SerialBAOSConnection {
                         case SERVER_ITEM_IND -> GetServerItem.Indicator
                                 .frameData(indicator.get())
                                 .getItems()
-                                .forEach(serverItem -> Optional
-                                        .ofNullable(statusListener.get(serverItem.id()))
-                                        .ifPresent(listener -> listenerExecutor.execute(() -> listener.accept(serverItem))));
-                        case DP_VALUE_IND -> GetDatapointValue.Indicator
-                                .frameData(indicator.get())
-                                .getDataPoints()
-                                .forEach(dp -> {
-                                    Optional
-                                            .ofNullable(valueChangeListener.get(dp.id().id()))
-                                            .ifPresent(listener -> listenerExecutor.execute(() -> listener.accept(dp)));
+                                .forEach(serverItem -> {
+                                    supervisor.onServerItem(serverItem);
+                                    var subscribers = statusListener.get(serverItem.id());
+                                    if (subscribers != null && !subscribers.isEmpty()) {
+                                        listeners.post(RequestWindow.serverItem(serverItem.id().getId()), () -> subscribers.accept(serverItem));
+                                    }
                                 });
+                        case DP_VALUE_IND -> {
+                            pacer.onIndication();
+                            GetDatapointValue.Indicator
+                                    .frameData(indicator.get())
+                                    .getDataPoints()
+                                    .forEach(dp -> {
+                                        if (!mirror.update(dp, ValueMirror.Source.INDICATION) && suppressUnchanged) return;
+                                        dispatch(dp);
+                                    });
+                        }
                         case UNKNOWN -> {
                             Log.error("Unknown indicator: {}", indicator.get().toHex());
                         }
@@ -145,148 +388,729 @@ public class SerialBAOSConnection {
 
     }
 
-    public void onValueChanged(DataPointId objectId, Consumer<DataPoint> listener) {
-        valueChangeListener.put(objectId.id(), listener);
+    /**
+     * Polls GetServerItem FIRMWARE_VERSION..BUS_CONNECTION_STATE until the module answers both, at most
+     * for the ready timeout. Sends directly instead of through the link owner, so it also works while the
+     * owner is not running or is the caller.
+     */
+    private boolean awaitReady() {
+        long deadline = System.nanoTime() + readyTimeout.toNanos();
+        var request = GetServerItem.Request.create().serverItem(ServerItemId.FIRMWARE_VERSION);
+        while (System.nanoTime() < deadline) {
+            try {
+                var future = reader.responseOf(request, READY_POLL_MS);
+                writer.sendDataFrame(request);
+                var response = GetServerItem.Response.frameData(future.waitForResult());
+                var items = response.getItems();
+                if (response.isSuccess()
+                        && items.stream().anyMatch(item -> item.id() == ServerItemId.FIRMWARE_VERSION)
+                        && items.stream().anyMatch(item -> item.id() == ServerItemId.BUS_CONNECTION_STATE)) {
+                    items.forEach(supervisor::onServerItem);
+                    return true;
+                }
+            } catch (TimeoutException e) {
+                // Modul startet noch
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
     }
 
-    public void onStatusChanged(ServerItemId id, Consumer<GetServerItem.Response.ServerItem> listener) {
-        statusListener.put(id, listener);
+    private void dispatch(DataPoint dp) {
+        // ein Callback je Indication, die Subscriber laufen darin nacheinander
+        var subscribers = valueChangeListener.get(dp.id().id());
+        if (subscribers != null && !subscribers.isEmpty()) {
+            listeners.post(RequestWindow.dataPoint(dp.id().id()), () -> subscribers.accept(dp));
+        }
     }
 
-    public void write(DataPoint dataPoint, boolean priority) {
-        var dp = priority
-                ? DataPointPriority.prio(dataPoint)
-                : DataPointPriority.normal(dataPoint);
-        try {
-            boolean success;
-            if (priority) {
-                success = dataPoints.offerFirst(dp, 1000, TimeUnit.MILLISECONDS);
-            } else {
-                success = dataPoints.offerLast(dp, 1000, TimeUnit.MILLISECONDS);
-            }
-            if (!success) {
-                Log.warn("BAOS queue full, dropping datapoint {}", dp);
+    /**
+     * Records every received and sent FT1.2 frame into the given capture, {@code null} stops capturing.
+     */
+    public void capture(WireCapture capture) {
+        reader.setCapture(capture);
+        writer.setCapture(capture);
+    }
+
+    /**
+     * Value listeners get a pending update replaced by a newer one of the same datapoint instead of every
+     * update in turn (default off). Updates of one datapoint are delivered in order either way.
+     */
+    public void setListenerConflation(boolean conflate) {
+        listeners.setConflate(conflate);
+    }
+
+    /**
+     * Indications repeating the known value of a datapoint are not passed to its listeners (default off).
+     * Changes of payload or availability are always passed on.
+     */
+    public void setSuppressUnchanged(boolean suppressUnchanged) {
+        this.suppressUnchanged = suppressUnchanged;
+    }
+
+    /**
+     * {@link #read(DataPointId)} answers from the {@link ValueMirror} while the known value is not older than
+     * {@code maxAge}; {@link Duration#ZERO} (default) always asks the object server.
+     */
+    public void setMirrorMaxAge(Duration maxAge) {
+        this.mirrorMaxAge = maxAge == null ? Duration.ZERO : maxAge;
+    }
+
+    /**
+     * Concurrent {@link #read(DataPointId) reads} of the same datapoint share one request and its result
+     * (default on). To also answer reads shortly after a completed one without a request, set a {@link
+     * #setMirrorMaxAge(Duration) mirror max age}.
+     */
+    public void setReadDeduplication(boolean deduplicateReads) {
+        this.deduplicateReads = deduplicateReads;
+    }
+
+    /**
+     * Reads answered by joining a read of the same datapoint already in flight.
+     */
+    public long absorbedReads() {
+        return absorbedReads.sum();
+    }
+
+    /**
+     * Mailbox depth and dispatch latency of the value and status listeners.
+     */
+    public ListenerDispatcher.Stats listenerStats() {
+        return listeners.stats();
+    }
+
+    public ListenerDispatcher.Stats listenerStats(DataPointId id) {
+        return listeners.stats(RequestWindow.dataPoint(id.id()));
+    }
+
+    /**
+     * Adds a listener for indications of the datapoint, any number of listeners per datapoint get every
+     * indication in the order they subscribed.
+     *
+     * @return handle to unsubscribe the listener again
+     */
+    public Subscribers.Subscription onValueChanged(DataPointId objectId, Consumer<DataPoint> listener) {
+        return valueChangeListener.computeIfAbsent(objectId.id(), id -> new Subscribers<>()).add(listener);
+    }
+
+    public Subscribers.Subscription onStatusChanged(ServerItemId id, Consumer<GetServerItem.Response.ServerItem> listener) {
+        return statusListener.computeIfAbsent(id, key -> new Subscribers<>()).add(listener);
+    }
+
+    public CompletableFuture<Void> write(DataPoint dataPoint, boolean priority) {
+        return write(dataPoint, priority ? TrafficClass.INTERACTIVE : TrafficClass.AUTOMATION, null);
+    }
+
+    /**
+     * Queues a datapoint command; waits up to 1s for room if the queue of the class is full.
+     *
+     * @param maxAge drop the command instead of sending it once it waited longer, null keeps it until sent
+     * @return completed when the object server accepted the command, otherwise failed with
+     * {@link BAOSRejectedException} (object server error), {@link BAOSQueueException} (queue full or
+     * max age exceeded) or {@link TimeoutException} (no response after all retries)
+     */
+    public CompletableFuture<Void> write(DataPoint dataPoint, TrafficClass trafficClass, Duration maxAge) {
+        return enqueue(dataPoint, trafficClass, maxAge, 1000);
+    }
+
+    /**
+     * Like {@link #write(DataPoint, TrafficClass, Duration)}, but never blocks the caller: if the queue
+     * of the class is full the future fails right away with a {@link BAOSQueueException}.
+     */
+    public CompletableFuture<Void> writeAsync(DataPoint dataPoint, TrafficClass trafficClass, Duration maxAge) {
+        return enqueue(dataPoint, trafficClass, maxAge, 0);
+    }
+
+    private CompletableFuture<Void> enqueue(DataPoint dataPoint, TrafficClass trafficClass, Duration maxAge, long waitMs) {
+        long deadline = maxAge == null ? TransmitScheduler.NO_DEADLINE : System.nanoTime() + maxAge.toNanos();
+        var dp = DataPointPriority.of(dataPoint, trafficClass, deadline);
+        var journal = this.journal;
+        if (journal != null) {
+            boolean coalescible = coalesceWrites && !notCoalesced.contains(dataPoint.getId());
+            try {
+                long seq = journal.append(dataPoint, trafficClass, maxAge == null ? 0 : System.currentTimeMillis() + maxAge.toMillis(), coalescible);
+                dp.result().whenComplete((ok, failure) -> journal.ack(seq));
+                // wartet noch ein älterer Schreibauftrag auf dem Datenpunkt, darf der neue nicht überholen
+                if (paused() || !takeOver(dp, coalescible)) {
+                    park(seq, dp, coalescible);
+                    actor.wake();
+                    return dp.result();
+                }
+            } catch (IOException e) {
+                Log.error("[{}] Journal append failed, queueing without journal: {}", dataPoint.getId(), e.getMessage());
             }
+        }
+        try {
+            // abgelehnte Datenpunkte meldet der Discard Listener
+            dataPoints.offer(trafficClass, dp, deadline, waitMs, TimeUnit.MILLISECONDS);
+            actor.wake();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             Log.warn("Write interrupted, dropping datapoint {}", dp);
+            dp.result().completeExceptionally(e);
         }
+        return dp.result();
     }
 
-    private void requestLoop() {
-        try {
-            while (running && !Thread.currentThread().isInterrupted()) {
-                var datapoint = dataPoints.takeFirst();
-                if (datapoint.retry() < this.retries) {
-                    if (datapoint.retry() > 1) {
-                        Log.info("[{}] Retry Execution > 1 wait for {}ms ...", datapoint.dataPoint().getId(), WAIT_RETRY_MS);
-                        Thread.sleep(WAIT_RETRY_MS * 2);
-                    }
-                    send(datapoint.dataPoint(), datapoint.priority(), datapoint.retry());
-                    Thread.sleep(100);
-                } else {
+    private void park(long seq, DataPointPriority dp, boolean coalescible) {
+        DataPointPriority replaced = null;
+        synchronized (parked) {
+            var previous = parkedByDataPoint.put(dp.dataPoint().getId(), seq);
+            if (coalescible && previous != null) replaced = unpark(previous);
+            parked.computeIfAbsent(dp.trafficClass(), cls -> new TreeMap<>()).put(seq, dp);
+        }
+        if (replaced != null) {
+            Log.debug("[{}] Coalesced waiting write {} into {}", dp.dataPoint().getId(), replaced.dataPoint().toHex(), dp.dataPoint().toHex());
+            follow(replaced, dp);
+        }
+    }
+
+    /**
+     * Whether a write on a running link may go straight to the transmit queue: yes if no older write on
+     * its datapoint waits, or if the waiting one is coalesced into it.
+     */
+    private boolean takeOver(DataPointPriority dp, boolean coalescible) {
+        DataPointPriority replaced;
+        synchronized (parked) {
+            var previous = parkedByDataPoint.get(dp.dataPoint().getId());
+            if (previous == null) return true;
+            if (!coalescible) return false;
+            parkedByDataPoint.remove(dp.dataPoint().getId());
+            replaced = unpark(previous);
+        }
+        if (replaced != null) {
+            Log.debug("[{}] Coalesced waiting write {} into {}", dp.dataPoint().getId(), replaced.dataPoint().toHex(), dp.dataPoint().toHex());
+            follow(replaced, dp);
+        }
+        return true;
+    }
+
+    private DataPointPriority unpark(long seq) {
+        for (var waiting : parked.values()) {
+            var dp = waiting.remove(seq);
+            if (dp != null) return dp;
+        }
+        return null;
+    }
+
+    /**
+     * Moves waiting journaled writes into the transmit queue, higher classes first, only a few at a time
+     * so they neither fill it nor overtake each other.
+     */
+    private void replay() {
+        while (dataPoints.size() < REPLAY_DEPTH) {
+            DataPointPriority next = null;
+            synchronized (parked) {
+                // EnumMap: Klassen in der Reihenfolge, in der sie bedient werden
+                for (var waiting : parked.values()) {
+                    var first = waiting.pollFirstEntry();
+                    if (first == null) continue;
+                    parkedByDataPoint.remove(first.getValue().dataPoint().getId(), first.getKey());
+                    next = first.getValue();
+                    break;
+                }
+            }
+            if (next == null) return;
+            try {
+                dataPoints.offer(next.trafficClass(), next, next.deadlineNanos(), 0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                next.result().completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    private boolean hasParked() {
+        synchronized (parked) {
+            return parked.values().stream().anyMatch(waiting -> !waiting.isEmpty());
+        }
+    }
+
+    /**
+     * Writes wait while the link is reconnecting and, with a journal, while the KNX bus is lost.
+     */
+    private boolean paused() {
+        var state = supervisor.getState();
+        return state == LinkSupervisor.State.RECONNECTING || (journal != null && state == LinkSupervisor.State.BUS_LOST);
+    }
+
+    /**
+     * Write lane of the link owner: the next queued write (with the writes batched to it) once the pacer
+     * lets it go.
+     */
+    private class Writes implements RequestActor.WriteLane {
+
+        @Override
+        public RequestActor.Task poll() {
+            // während der Wiederverbindung warten die Schreibaufträge in der Queue
+            if (paused()) return null;
+            replay();
+            while (pacer.readyInNanos() == 0) {
+                DataPointPriority datapoint;
+                try {
+                    datapoint = dataPoints.take(0, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                if (datapoint == null) return null;
+                if (datapoint.retry() >= retries) {
                     Log.error("[{}] Sent DP Timeout failed [Payload: {}; Retry: > {}]", datapoint.dataPoint().getId(), datapoint.dataPoint().toHex(), retries);
+                    datapoint.result().completeExceptionally(new TimeoutException(
+                            String.format("No response for datapoint [%d] after %d retries", datapoint.dataPoint().getId(), retries)));
+                    continue;
                 }
+                // jeder Schreibauftrag im Batch ist ein eigenes Telegramm auf dem Bus
+                var batch = drainBatch(datapoint, Math.min(writeBatchSize, pacer.availableTokens()));
+                // Timeouts haben die Rate bereits reduziert, Retries laufen durch denselben Pacer
+                pacer.reserve(batch.size());
+                return new RequestActor.Task(RequestWindow.dataPoint(datapoint.dataPoint().getId()), false, () -> {
+                    try {
+                        send(batch);
+                    } catch (RuntimeException e) {
+                        // der Owner läuft weiter, die Schreibaufträge dürfen aber nicht ewig offen bleiben
+                        batch.forEach(dp -> dp.result().completeExceptionally(e));
+                        throw e;
+                    }
+                }, e -> batch.forEach(dp -> dp.result().completeExceptionally(e)));
             }
+            return null;
+        }
+
+        @Override
+        public long readyInNanos() {
+            if (dataPoints.size() == 0 && !hasParked()) return Long.MAX_VALUE;
+            return paused() ? TimeUnit.MILLISECONDS.toNanos(100) : pacer.readyInNanos();
+        }
+    }
+
+    /**
+     * Takes further queued writes of the same class that fit into one request with the first one. A
+     * datapoint is only taken once per request, a second write on it waits for the next request.
+     * At most {@code maxBatch} writes, the pacer tokens available.
+     */
+    private List<DataPointPriority> drainBatch(DataPointPriority first, int maxBatch) {
+        if (!first.batchable() || maxBatch <= 1) return List.of(first);
+        var batch = new ArrayList<DataPointPriority>();
+        batch.add(first);
+        int size = SetDatapointValue.Request.HEADER_SIZE + SetDatapointValue.Request.commandSize(first.dataPoint());
+        while (batch.size() < maxBatch) {
+            int free = FT12Frame.Data.MAX_PAYLOAD_SIZE - size;
+            var next = dataPoints.poll(first.trafficClass(), dp -> dp.batchable()
+                    && SetDatapointValue.Request.commandSize(dp.dataPoint()) <= free
+                    && batch.stream().noneMatch(queued -> queued.dataPoint().getId() == dp.dataPoint().getId()));
+            if (next == null) break;
+            batch.add(next);
+            size += SetDatapointValue.Request.commandSize(next.dataPoint());
+        }
+        return batch;
+    }
+
+    /**
+     * Sends the writes in one request; runs on the link owner, holding the window slot of the first datapoint.
+     * <p>
+     * The response carries one error code for the whole request. If it fails, the writes are queued
+     * again to be sent alone, so every write gets its own result.
+     */
+    private void send(List<DataPointPriority> batch) {
+        if (batch.size() == 1) {
+            send(batch.getFirst());
+            return;
+        }
+        var first = batch.getFirst();
+        try {
+            var request = SetDatapointValue.Request.setCacheAndBus(batch.stream().map(DataPointPriority::dataPoint).toList());
+            var future = reader.responseOf(request, setRtt.timeoutMs());
+            long sentAt = System.nanoTime();
+            writer.sendDataFrame(request, first.trafficClass());
+            var frameData = future.waitForResult();
+            long roundTrip = System.nanoTime() - sentAt;
+            pacer.onResponse(roundTrip);
+            setRtt.onResponse(roundTrip);
+            supervisor.onResponse();
+            var response = SetDatapointValue.Response.frameData(frameData);
+            if (!response.isFailed()) {
+                Log.info("[{}] Sent OK ({} datapoints)", first.dataPoint().getId(), batch.size());
+                batch.forEach(dp -> {
+                    mirror.update(dp.dataPoint(), ValueMirror.Source.WRITE);
+                    dp.result().complete(null);
+                });
+                return;
+            }
+            Log.warn("[{}] Sent Fail for batch of {} datapoints [{}], sending them alone", first.dataPoint().getId(), batch.size(), response.error());
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                dataPoints.requeue(first.trafficClass(), DataPointPriority.single(batch.get(i)), batch.get(i).deadlineNanos());
+            }
+            actor.wake();
+        } catch (TimeoutException e) {
+            pacer.onTimeout();
+            setRtt.onTimeout();
+            supervisor.onTimeout();
+            Log.info("[{}] Sent DP Timeout for batch of {} datapoints", first.dataPoint().getId(), batch.size());
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                dataPoints.requeue(first.trafficClass(), DataPointPriority.retry(batch.get(i)), batch.get(i).deadlineNanos());
+            }
+            actor.wake();
+        }
+    }
+
+    /**
+     * Sends the datapoint; runs on the link owner, holding the window slot of the datapoint.
+     */
+    private void send(DataPointPriority datapoint) {
+        var dataPoint = datapoint.dataPoint();
+        try {
+            var request = SetDatapointValue.Request.setCacheAndBus(dataPoint);
+            var future = reader.responseOf(request, setRtt.timeoutMs());
+            long sentAt = System.nanoTime();
+            writer.sendDataFrame(request, datapoint.trafficClass());
+            var frameData = future.waitForResult();
+            long roundTrip = System.nanoTime() - sentAt;
+            pacer.onResponse(roundTrip);
+            // Karn: die Antwort auf eine Wiederholung kann noch die auf den ersten Versuch sein
+            if (datapoint.retry() == 0) setRtt.onResponse(roundTrip);
+            supervisor.onResponse();
+            var response = SetDatapointValue.Response.frameData(frameData);
+            if (response.isFailed()) {
+                Log.error("[{}] Sent Fail", dataPoint.getId());
+                datapoint.result().completeExceptionally(new BAOSRejectedException(dataPoint.getId(), response.error()));
+            } else {
+                Log.info("[{}] Sent OK", dataPoint.getId());
+                mirror.update(dataPoint, ValueMirror.Source.WRITE);
+                datapoint.result().complete(null);
+            }
+        } catch (TimeoutException e) {
+            pacer.onTimeout();
+            setRtt.onTimeout();
+            supervisor.onTimeout();
+            Log.info("[{}] Sent DP Timeout [retry:{}]", dataPoint.getId(), datapoint.retry());
+            // vorne einreihen, damit neuere Werte für denselben Datenpunkt nicht überholt werden
+            dataPoints.requeue(datapoint.trafficClass(), DataPointPriority.retry(datapoint), datapoint.deadlineNanos());
+            actor.wake();
+        }
+    }
+
+    /**
+     * Reads the datapoint from the object server cache. Each request goes through the read lane of the link
+     * owner; while the object server is still updating the value the link is free for other requests.
+     * With a {@link #setMirrorMaxAge(Duration) mirror max age} a value known young enough is returned
+     * without a request. A read of a datapoint that is already being read waits for that read and gets its
+     * result or failure.
+     */
+    public DataPoint read(DataPointId id) throws BAOSReadException {
+        var maxAge = mirrorMaxAge;
+        if (!maxAge.isZero()) {
+            var known = mirror.fresh(id, maxAge);
+            if (known.isPresent()) return known.get();
+        }
+        if (!deduplicateReads) return readOnce(id);
+        var own = new CompletableFuture<DataPoint>();
+        var running = readsInFlight.putIfAbsent(id.id(), own);
+        if (running != null) {
+            absorbedReads.increment();
+            return join(id, running);
+        }
+        try {
+            var dp = readOnce(id);
+            own.complete(dp);
+            return dp;
+        } catch (BAOSReadException | RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            readsInFlight.remove(id.id(), own);
+        }
+    }
+
+    private static DataPoint join(DataPointId id, CompletableFuture<DataPoint> running) throws BAOSReadException {
+        try {
+            return running.get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            Log.info("Request loop stopped");
-        } catch (Exception e) {
-            Log.error("Failed to request data point!", e);
+            throw new BAOSReadException("Reading interrupted!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BAOSReadException readFailure) throw readFailure;
+            if (e.getCause() instanceof RuntimeException failure) throw failure;
+            throw new BAOSReadException("Read of [" + id.id() + "] failed", e);
         }
     }
 
-    private void send(DataPoint dataPoint, boolean priority, int retry) {
-        synchronized (writeLock) {
-            try {
-                var request = SetDatapointValue.Request.setCacheAndBus(dataPoint);
-                var future = reader.responseOf(request, 5000);
-                writer.sendDataFrame(request, priority);
-                var frameData = future.waitForResult();
-                var response = SetDatapointValue.Response.frameData(frameData);
-                if (response.isFailed()) {
-                    Log.error("[{}] Sent Fail", dataPoint.getId());
-                } else {
-                    Log.info("[{}] Sent OK", dataPoint.getId());
+    /**
+     * One read from the object server cache, triggering a cache update via the bus if it has no value.
+     */
+    private DataPoint readOnce(DataPointId id) throws BAOSReadException {
+        try {
+            var dp = readCache(id);
+            if (dp.isPresent()) {
+                mirror.update(dp.get(), ValueMirror.Source.RESPONSE);
+                return dp.get();
+            }
+            updateCacheViaBus(id);
+            throw new BAOSReadException("Value not found for [" + id.id() + "]. Trigger update cache successfully!");
+        } catch (TimeoutException e) {
+            throw new BAOSReadException("Timeout!", e);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #read(DataPointId)}: the read runs on a virtual thread, the caller only holds the
+     * future. It fails with {@link TimeoutException}, {@link BAOSRejectedException} (object server error) or
+     * {@link BAOSReadException} (no value in the cache yet, a cache update was triggered).
+     */
+    public CompletableFuture<DataPoint> readAsync(DataPointId id) {
+        var result = new CompletableFuture<DataPoint>();
+        try {
+            sender.execute(() -> {
+                try {
+                    result.complete(read(id));
+                } catch (BAOSReadException e) {
+                    result.completeExceptionally(e.getCause() instanceof TimeoutException || e.getCause() instanceof BAOSRejectedException
+                            ? e.getCause()
+                            : e);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
                 }
-            } catch (TimeoutException e) {
-                Log.info("[{}] Sent DP Timeout [retry:{}]", dataPoint.getId(), retry);
-                dataPoints.addLast(DataPointPriority.retry(dataPoint, retry));
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new BAOSReadException("Connection closed", e));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the datapoints of the range from the object server cache with as few frames as possible.
+     * <p>
+     * The object server puts as many datapoints into a response as fit into one frame; the rest of the
+     * range is requested again starting after the last datapoint returned. Every datapoint keeps the state
+     * the object server reported, check {@link DataPoint#isAvailable()} before using its value. Datapoints
+     * the object server does not know are missing from the result.
+     */
+    public List<DataPoint> read(DataPointRange range) throws BAOSReadException {
+        var dataPoints = new ArrayList<DataPoint>();
+        var rest = range;
+        while (rest != null) {
+            var response = readFrame(rest);
+            if (response.getError() == Error.NO_ELEMENT_FOUND) break;
+            if (!response.isSuccess()) {
+                throw new BAOSReadException("Object server read failed [" + rest + " ERROR:" + response.getError().getDescription() + "]!",
+                        new BAOSRejectedException(rest.start(), response.getError()));
             }
+            if (!response.isValid()) {
+                throw new BAOSReadException("Invalid BAOS message [M:" + response.getMainService() + " | S:" + response.getSubService() + "]!");
+            }
+            if (response.getDataPoints().isEmpty()) break;
+            int last = rest.start() - 1;
+            for (var dataPoint : response.getDataPoints()) {
+                int id = dataPoint.id().id();
+                if (id <= last || !rest.contains(id)) {
+                    throw new BAOSReadException("Datapoint [" + id + "] out of order for " + rest);
+                }
+                dataPoints.add(dataPoint);
+                if (dataPoint.isAvailable()) mirror.update(dataPoint, ValueMirror.Source.RESPONSE);
+                last = id;
+            }
+            rest = last < rest.end() ? rest.after(last) : null;
         }
+        return dataPoints;
     }
 
-    public DataPoint read(DataPointId id) throws BAOSReadException {
-        synchronized (writeLock) {
+    /**
+     * Reads the datapoints with one {@link #read(DataPointRange)} per contiguous range of ids.
+     */
+    public List<DataPoint> readAll(Collection<DataPointId> ids) throws BAOSReadException {
+        var dataPoints = new ArrayList<DataPoint>();
+        for (var range : DataPointRange.of(ids)) {
+            dataPoints.addAll(read(range));
+        }
+        return dataPoints;
+    }
+
+    /**
+     * Reads the descriptions (value size, flags, DPT) of the configured datapoints in the range, following
+     * up partial responses like {@link #read(DataPointRange)}. Datapoints not configured in ETS are missing
+     * from the result.
+     */
+    public List<GetDatapointDescription.Description> describe(DataPointRange range) throws BAOSReadException {
+        var descriptions = new ArrayList<GetDatapointDescription.Description>();
+        var rest = range;
+        while (rest != null) {
+            GetDatapointDescription.Response response;
             try {
-                var dp = readCache(id);
-                if (dp.isPresent()) {
-                    return dp.get();
-                }
-                updateCacheViaBus(id);
-                throw new BAOSReadException("Value not found for [" + id.id() + "]. Trigger update cache successfully!");
+                var frameData = exchange(RequestWindow.dataPoint(rest.start()), GetDatapointDescription.Request.range(rest));
+                response = GetDatapointDescription.Response.frameData(frameData);
             } catch (TimeoutException e) {
                 throw new BAOSReadException("Timeout!", e);
             }
+            if (response.getError() == Error.NO_ELEMENT_FOUND) break;
+            if (!response.isSuccess()) {
+                throw new BAOSReadException("Datapoint description failed [" + rest + " ERROR:" + response.getError().getDescription() + "]!",
+                        new BAOSRejectedException(rest.start(), response.getError()));
+            }
+            if (!response.isValid()) {
+                throw new BAOSReadException("Invalid BAOS message [M:" + response.getMainService() + " | S:" + response.getSubService() + "]!");
+            }
+            if (response.getDescriptions().isEmpty()) break;
+            int last = rest.start() - 1;
+            for (var description : response.getDescriptions()) {
+                int id = description.id().id();
+                if (id <= last || !rest.contains(id)) {
+                    throw new BAOSReadException("Datapoint [" + id + "] out of order for " + rest);
+                }
+                descriptions.add(description);
+                last = id;
+            }
+            rest = last < rest.end() ? rest.after(last) : null;
+        }
+        return descriptions;
+    }
+
+    /**
+     * Reads the descriptions with one {@link #describe(DataPointRange)} per contiguous range of ids.
+     */
+    public List<GetDatapointDescription.Description> describeAll(Collection<DataPointId> ids) throws BAOSReadException {
+        var descriptions = new ArrayList<GetDatapointDescription.Description>();
+        for (var range : DataPointRange.of(ids)) {
+            descriptions.addAll(describe(range));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Identifies the module and the application loaded by ETS: serial number, application ID and version,
+     * e.g. {@code 00C501020304-0007-20}.
+     */
+    public String getApplicationKey() throws TimeoutException, BAOSReadException {
+        var request = GetServerItem.Request.create().serverItem(ServerItemId.APP_ID);
+        var response = GetServerItem.Response.frameData(exchange(RequestWindow.serverItem(ServerItemId.APP_ID.getId()), request));
+        if (!response.isSuccess()) {
+            throw new BAOSReadException("Application of module unknown [ERROR:" + response.getError().getDescription() + "]");
+        }
+        String serial = "", appId = "", version = "";
+        for (var item : response.getItems()) {
+            switch (item.id()) {
+                case SERIAL_NUMBER -> serial = item.toHex();
+                case APP_ID -> appId = item.toHex();
+                case APP_VERSION -> version = item.toHex();
+                default -> {
+                }
+            }
+        }
+        return (serial + "-" + appId + "-" + version).replace(" ", "");
+    }
+
+    private GetDatapointValue.Response readFrame(DataPointRange range) throws BAOSReadException {
+        try {
+            var frameData = exchange(RequestWindow.dataPoint(range.start()), GetDatapointValue.Request.range(range));
+            if (Log.isDebugEnabled()) Log.debug("Get DP range {} response {}", range, frameData.toHex());
+            return GetDatapointValue.Response.frameData(frameData);
+        } catch (TimeoutException e) {
+            throw new BAOSReadException("Timeout!", e);
         }
     }
 
+    /**
+     * Sends the request through the read lane of the link owner and waits for its response.
+     */
+    private FT12Frame.Data exchange(int key, DataFramePayload request) throws TimeoutException {
+        var estimator = rtt.get(request.getService());
+        return actor.call(key, () -> {
+            var future = reader.responseOf(request, estimator.timeoutMs());
+            long sentAt = System.nanoTime();
+            writer.sendDataFrame(request);
+            try {
+                var frameData = future.waitForResult();
+                estimator.onResponse(System.nanoTime() - sentAt);
+                supervisor.onResponse();
+                return frameData;
+            } catch (TimeoutException e) {
+                estimator.onTimeout();
+                supervisor.onTimeout();
+                throw e;
+            }
+        });
+    }
+
     public void reset() {
-        synchronized (writeLock) {
-            writer.sendReset();
-            writer.resetSequence();
+        try {
+            actor.call(0, true, () -> {
+                writer.sendReset();
+                writer.resetSequence();
+                return null;
+            });
+        } catch (TimeoutException e) {
+            Log.warn("Reset failed: {}", e.getMessage());
         }
     }
 
     public void reset(DataPointId id) throws TimeoutException {
-        synchronized (writeLock) {
+        mirror.invalidate(id);
+        clearStatus(id);
+    }
+
+    private void clearStatus(DataPointId id) throws TimeoutException {
+        actor.call(RequestWindow.dataPoint(id.id()), () -> {
+            long sentAt = System.currentTimeMillis();
             writer.sendDataFrame(SetDatapointValue.Request.clearDPStatus(id));
-            reader.waitForAck(timeout);
+            awaitAck(sentAt);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the ACK of a frame sent at {@code sentAt} (epoch ms) within the measured ACK timeout.
+     */
+    private void awaitAck(long sentAt) throws TimeoutException {
+        try {
+            reader.waitForAck(sentAt, ackRtt.timeoutMs());
+            ackRtt.onResponse(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - sentAt));
+        } catch (TimeoutException e) {
+            ackRtt.onTimeout();
+            throw e;
         }
     }
 
     public List<String> getAllStatus() {
-        synchronized (writeLock) {
-            try {
-                var request = GetServerItem.Request
-                        .create()
-                        .serverItem(ServerItemId.All());
+        try {
+            var request = GetServerItem.Request
+                    .create()
+                    .serverItem(ServerItemId.All());
 
-                var future = reader.responseOf(request, timeout);
-                writer.sendDataFrame(request);
-                //reader.waitForAck(timeout);
-                var frameData = future.waitForResult();
-                var response = GetServerItem.Response.frameData(frameData);
-                if (response.isSuccess()) {
-                    return response.getItems().stream().map(serverItem -> switch (serverItem.id()) {
-                        case HARDWARE_TYPE ->
-                                String.format("%s: %s", serverItem.id().getDescription(), serverItem.stringData());
-                        case BUS_CONNECTION_STATE ->
-                                String.format("%s: %s", serverItem.id().getDescription(), (serverItem.boolData() ? "available" : "not available"));
-                        case HARDWARE_VERSION, FIRMWARE_VERSION ->
-                                String.format("%s v%d", serverItem.id().getDescription(), serverItem.intData());
-                        default -> String.format("%s %s", serverItem.id().getDescription(), serverItem.toHex());
-                    }).toList();
-                }
-                Log.error("No Success response for get all status status [ServerItemId.All]");
-                return new ArrayList<>();
-            } catch (Exception e) {
-                Log.error("Get All Status Error", e);
-                return new ArrayList<>();
+            var frameData = exchange(RequestWindow.serverItem(ServerItemId.All().getId()), request);
+            var response = GetServerItem.Response.frameData(frameData);
+            if (response.isSuccess()) {
+                return response.getItems().stream().map(serverItem -> switch (serverItem.id()) {
+                    case HARDWARE_TYPE ->
+                            String.format("%s: %s", serverItem.id().getDescription(), serverItem.stringData());
+                    case BUS_CONNECTION_STATE ->
+                            String.format("%s: %s", serverItem.id().getDescription(), (serverItem.boolData() ? "available" : "not available"));
+                    case HARDWARE_VERSION, FIRMWARE_VERSION ->
+                            String.format("%s v%d", serverItem.id().getDescription(), serverItem.intData());
+                    default -> String.format("%s %s", serverItem.id().getDescription(), serverItem.toHex());
+                }).toList();
             }
+            Log.error("No Success response for get all status status [ServerItemId.All]");
+            return new ArrayList<>();
+        } catch (Exception e) {
+            Log.error("Get All Status Error", e);
+            return new ArrayList<>();
         }
     }
 
     private Optional<DataPoint> readCache(DataPointId id) throws BAOSReadException, TimeoutException {
         var request = GetDatapointValue.Request.getDP(id);
-        var future = reader.responseOf(request, timeout);
-        writer.sendDataFrame(request);
-        FT12Frame.Data firstGetDataPointframeData = future.waitForResult();
+        FT12Frame.Data firstGetDataPointframeData = exchange(RequestWindow.dataPoint(id.id()), request);
         var response = GetDatapointValue.Response.frameData(firstGetDataPointframeData);
-        Log.debug("Get DP [" + id.id() + "] response [" + response.getStartDatapoint().id() + "] " + firstGetDataPointframeData.toHex());
+        if (Log.isDebugEnabled()) Log.debug("Get DP [" + id.id() + "] response [" + response.getStartDatapoint().id() + "] " + firstGetDataPointframeData.toHex());
 
         if (!response.isSuccess()) {
-            throw new BAOSReadException("Object server read failed [ERROR:" + response.getError().getDescription() + "]!");
+            throw new BAOSReadException("Object server read failed [ERROR:" + response.getError().getDescription() + "]!",
+                    new BAOSRejectedException(id.id(), response.getError()));
         }
         if (!response.isValid()) {
             throw new BAOSReadException("Invalid BAOS message [M:" + response.getMainService() + " | S:" + response.getSubService() + "]!");
@@ -313,7 +1137,7 @@ public class SerialBAOSConnection {
                     throw new BAOSReadException("Sleep Interrupted", e);
                 }
             }
-            if (inProgress) reset(id);
+            if (inProgress) clearStatus(id);
         }
         Log.debug("FAILED: Cache:{}; Success:{}; progress:{}", response.foundInOSCache(), response.isSuccess(), response.anyProgress());
         return Optional.empty();
@@ -321,9 +1145,7 @@ public class SerialBAOSConnection {
 
     private void updateCacheViaBus(DataPointId id) throws TimeoutException, BAOSReadException {
         var request = SetDatapointValue.Request.updateCache(id);
-        var future = reader.responseOf(request, timeout);
-        writer.sendDataFrame(request);
-        var setDataPointFrame = future.waitForResult();
+        var setDataPointFrame = exchange(RequestWindow.dataPoint(id.id()), request);
         writer.sendAck();
         var setDP = SetDatapointValue.Response.frameData(setDataPointFrame);
         Log.info("Update Cache [ID:{} {} Hex:{}]", id.id(), (setDP.isFailed() ? "FAIL" : "OK"), setDataPointFrame.toHex());
@@ -332,4 +1154,71 @@ public class SerialBAOSConnection {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * The connection as seen by the {@link LinkSupervisor}.
+     */
+    private class Supervision implements LinkSupervisor.Link {
+
+        @Override
+        public boolean relink() {
+            try {
+                // exklusiv: keine andere Anfrage läuft, während der Port neu geöffnet wird
+                return actor.call(0, true, () -> {
+                    port.closePort();
+                    if (!port.openPort()) return false;
+                    writer.resetSequence();
+                    long resetAt = System.currentTimeMillis();
+                    writer.sendReset();
+                    awaitAck(resetAt);
+                    return awaitReady();
+                });
+            } catch (TimeoutException | IllegalStateException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void probe() throws TimeoutException {
+            var request = GetServerItem.Request.create().serverItem(ServerItemId.TIME_SINCE_RESET);
+            var response = GetServerItem.Response.frameData(exchange(RequestWindow.serverItem(ServerItemId.TIME_SINCE_RESET.getId()), request));
+            if (response.isSuccess()) {
+                response.getItems().forEach(supervisor::onServerItem);
+            }
+        }
+
+        @Override
+        public long nanosSinceLastFrame() {
+            return reader.nanosSinceLastFrame();
+        }
+
+        /**
+         * Reads the datapoints with listeners in as few frames as possible and dispatches the ones whose value
+         * differs from the mirror. Datapoints without a value in the object server are read from the bus,
+         * their value follows as indication.
+         */
+        @Override
+        public void resync() throws BAOSReadException {
+            var ids = valueChangeListener.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isEmpty())
+                    .map(entry -> DataPointId.id(entry.getKey()))
+                    .toList();
+            if (ids.isEmpty()) return;
+            var known = new HashMap<Integer, byte[]>();
+            ids.forEach(id -> mirror.get(id).ifPresent(entry -> known.put(id.id(), entry.dataPoint().payload())));
+            int changed = 0;
+            for (var dp : readAll(ids)) {
+                if (!dp.isAvailable()) {
+                    try {
+                        updateCacheViaBus(dp.id());
+                    } catch (TimeoutException e) {
+                        throw new BAOSReadException("Timeout!", e);
+                    }
+                } else if (!Arrays.equals(known.get(dp.id().id()), dp.payload())) {
+                    dispatch(dp);
+                    changed++;
+                }
+            }
+            Log.info("Resync: {} datapoints read, {} changed", ids.size(), changed);
+        }
+    }
+}
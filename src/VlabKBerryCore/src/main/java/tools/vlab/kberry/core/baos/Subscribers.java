@@ -0,0 +1,88 @@
+package tools.vlab.kberry.core.baos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Listeners of one datapoint or server item.
+ * <p>
+ * Copy-on-write: subscribing and unsubscribing replace the array, {@link #accept(Object)} only reads the
+ * current one, so delivering an event neither locks nor allocates. A failing listener is logged and does
+ * not keep the others from getting the event.
+ */
+public class Subscribers<T> implements Consumer<T> {
+
+    private static final Logger Log = LoggerFactory.getLogger(Subscribers.class);
+
+    /**
+     * Handle of one subscription, unsubscribing twice is harmless.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+
+        void unsubscribe();
+
+        @Override
+        default void close() {
+            unsubscribe();
+        }
+    }
+
+    // keine generischen Arrays in Java, typed() stellt den Typ beim Aufruf wieder her
+    private volatile Consumer<?>[] listeners = new Consumer<?>[0];
+
+    public synchronized Subscription add(Consumer<? super T> listener) {
+        var copy = Arrays.copyOf(listeners, listeners.length + 1);
+        copy[listeners.length] = listener;
+        listeners = copy;
+        var active = new AtomicBoolean(true);
+        return () -> {
+            if (active.compareAndSet(true, false)) remove(listener);
+        };
+    }
+
+    /**
+     * Removes one registration of the listener, a listener added twice stays registered once.
+     */
+    public synchronized boolean remove(Consumer<? super T> listener) {
+        var current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                var copy = new Consumer<?>[current.length - 1];
+                System.arraycopy(current, 0, copy, 0, i);
+                System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                listeners = copy;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return listeners.length;
+    }
+
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    @Override
+    public void accept(T event) {
+        for (var listener : listeners) {
+            try {
+                typed(listener).accept(event);
+            } catch (RuntimeException e) {
+                Log.error("Listener failed on {}", event, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked") // sicher: nur add(Consumer<? super T>) legt Elemente ab
+    private Consumer<? super T> typed(Consumer<?> listener) {
+        return (Consumer<? super T>) listener;
+    }
+}
@@ -0,0 +1,23 @@
+package tools.vlab.kberry.core.baos;
+
+/**
+ * Transmit classes of the {@link TransmitScheduler}, in the order they are served.
+ */
+public enum TrafficClass {
+    /**
+     * FT1.2 link control: ACK and reset.
+     */
+    LINK_CONTROL,
+    /**
+     * Commands a user waits for (switching a light, reading a value).
+     */
+    INTERACTIVE,
+    /**
+     * Commands from rules and timers.
+     */
+    AUTOMATION,
+    /**
+     * Cache refresh and status polling.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,348 @@
+package tools.vlab.kberry.core.baos;
+
+import lombok.Setter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Transmit queue with one FIFO per {@link TrafficClass}.
+ * <p>
+ * {@link #take(long, TimeUnit)} serves the classes strictly in order: a command is only taken when all
+ * higher classes are empty. Commands can carry a deadline; a command past its deadline is dropped when it
+ * comes up instead of being sent stale. When a class is full its {@link OverflowPolicy} decides between
+ * waiting, dropping the oldest command and rejecting the new one. Dropped, expired and rejected commands
+ * are handed to the discard listener.
+ * <p>
+ * With a coalesce key, a new command replaces a queued command of the same class with the same key in
+ * place: it keeps the queue position of the older one, which is handed to the coalesce listener and
+ * never sent. Commands without key (null) are always queued.
+ * <p>
+ * Waiting threads park on conditions, there is no polling.
+ */
+public class TransmitScheduler<T> {
+
+    public enum OverflowPolicy {
+        /**
+         * Wait until there is room (or the offer times out).
+         */
+        BLOCK,
+        /**
+         * Drop the oldest queued command of the class.
+         */
+        DROP_OLDEST,
+        /**
+         * Reject the new command.
+         */
+        REJECT
+    }
+
+    /**
+     * Why a command was handed to the discard listener.
+     */
+    public enum Discard {
+        /**
+         * Dropped by {@link OverflowPolicy#DROP_OLDEST} to make room.
+         */
+        DROPPED,
+        /**
+         * Rejected because the class was full.
+         */
+        REJECTED,
+        /**
+         * Past its deadline.
+         */
+        EXPIRED
+    }
+
+    public static final long NO_DEADLINE = 0;
+
+    private static final class Entry<T> {
+        private T item;
+        private long deadlineNanos;
+        private final long enqueuedNanos;
+        private final Object key;
+
+        private Entry(T item, long enqueuedNanos, long deadlineNanos, Object key) {
+            this.item = item;
+            this.enqueuedNanos = enqueuedNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Snapshot of one class.
+     *
+     * @param depth       commands currently queued
+     * @param maxDepth    highest depth seen
+     * @param enqueued    commands accepted
+     * @param taken       commands handed to the transmitter
+     * @param dropped     commands dropped by {@link OverflowPolicy#DROP_OLDEST}
+     * @param rejected    commands rejected because the class was full
+     * @param expired     commands dropped after their deadline
+     * @param coalesced   commands replaced by a newer one with the same coalesce key before being sent
+     * @param meanWaitMs  mean time between enqueue and take
+     * @param maxWaitMs   longest time between enqueue and take
+     */
+    public record QueueStats(int depth, int maxDepth, long enqueued, long taken, long dropped, long rejected,
+                             long expired, long coalesced, double meanWaitMs, double maxWaitMs) {
+    }
+
+    private static final class Lane<T> {
+        private final ArrayDeque<Entry<T>> queue = new ArrayDeque<>();
+        private final Map<Object, Entry<T>> byKey = new HashMap<>();
+        private int capacity;
+        private OverflowPolicy policy;
+        private int maxDepth;
+        private long enqueued, taken, dropped, rejected, expired, coalesced, waitNanos, maxWaitNanos;
+
+        private Lane(int capacity, OverflowPolicy policy) {
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        private Entry<T> pollFirst() {
+            var entry = queue.pollFirst();
+            if (entry != null && entry.key != null) byKey.remove(entry.key, entry);
+            return entry;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final List<Lane<T>> lanes = new ArrayList<>();
+    @Setter
+    private volatile BiConsumer<T, Discard> discardListener = (item, reason) -> {
+    };
+    @Setter
+    private volatile Function<T, Object> coalesceKey = item -> null;
+    /**
+     * Called with the replaced command and the one replacing it.
+     */
+    @Setter
+    private volatile BiConsumer<T, T> coalesceListener = (replaced, replacement) -> {
+    };
+
+    /**
+     * All classes with the same capacity and policy; change single classes with {@link #configure}.
+     */
+    public TransmitScheduler(int capacity, OverflowPolicy policy) {
+        for (int i = 0; i < TrafficClass.values().length; i++) {
+            lanes.add(new Lane<>(capacity, policy));
+        }
+    }
+
+    public TransmitScheduler<T> configure(TrafficClass trafficClass, int capacity, OverflowPolicy policy) {
+        lock.lock();
+        try {
+            var lane = lanes.get(trafficClass.ordinal());
+            lane.capacity = capacity;
+            lane.policy = policy;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    public boolean offer(TrafficClass trafficClass, T item) throws InterruptedException {
+        return offer(trafficClass, item, NO_DEADLINE, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queues a command at the end of its class.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} after which the command is dropped, or {@link #NO_DEADLINE}
+     * @param timeout       how long {@link OverflowPolicy#BLOCK} waits for room
+     * @return false if the command was rejected
+     */
+    public boolean offer(TrafficClass trafficClass, T item, long deadlineNanos, long timeout, TimeUnit unit) throws InterruptedException {
+        List<T> dropped = null;
+        T rejected = null;
+        T replaced = null;
+        Object key = coalesceKey.apply(item);
+        lock.lock();
+        try {
+            var lane = lanes.get(trafficClass.ordinal());
+            var queued = key == null ? null : lane.byKey.get(key);
+            if (queued != null) {
+                replaced = queued.item;
+                queued.item = item;
+                queued.deadlineNanos = deadlineNanos;
+                lane.coalesced++;
+                return true;
+            }
+            long remaining = unit.toNanos(timeout);
+            while (lane.queue.size() >= lane.capacity) {
+                if (lane.policy == OverflowPolicy.DROP_OLDEST) {
+                    // nach configure() mit kleinerer Kapazität können es mehrere sein
+                    if (dropped == null) dropped = new ArrayList<>();
+                    dropped.add(lane.pollFirst().item);
+                    lane.dropped++;
+                } else if (lane.policy == OverflowPolicy.REJECT || remaining <= 0) {
+                    lane.rejected++;
+                    rejected = item;
+                    return false;
+                } else {
+                    remaining = notFull.awaitNanos(remaining);
+                }
+            }
+            add(lane, new Entry<>(item, System.nanoTime(), deadlineNanos, key), false);
+            return true;
+        } finally {
+            lock.unlock();
+            if (dropped != null) dropped.forEach(oldest -> discardListener.accept(oldest, Discard.DROPPED));
+            if (rejected != null) discardListener.accept(rejected, Discard.REJECTED);
+            if (replaced != null) coalesceListener.accept(replaced, item);
+        }
+    }
+
+    /**
+     * Queues a command at the head of its class regardless of the capacity, e.g. a retry that must not be
+     * overtaken by newer commands for the same datapoint. A requeued command is only replaced by newer
+     * ones if no other command with its key is queued.
+     */
+    public void requeue(TrafficClass trafficClass, T item, long deadlineNanos) {
+        lock.lock();
+        try {
+            add(lanes.get(trafficClass.ordinal()), new Entry<>(item, System.nanoTime(), deadlineNanos, coalesceKey.apply(item)), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(Lane<T> lane, Entry<T> entry, boolean first) {
+        if (first) {
+            lane.queue.addFirst(entry);
+        } else {
+            lane.queue.addLast(entry);
+        }
+        if (entry.key != null) lane.byKey.putIfAbsent(entry.key, entry);
+        lane.enqueued++;
+        lane.maxDepth = Math.max(lane.maxDepth, lane.queue.size());
+        notEmpty.signal();
+    }
+
+    /**
+     * Takes the next command of the highest non-empty class.
+     *
+     * @return null if nothing was queued within the timeout
+     */
+    public T take(long timeout, TimeUnit unit) throws InterruptedException {
+        List<T> expired = null;
+        lock.lock();
+        try {
+            long remaining = unit.toNanos(timeout);
+            while (true) {
+                long now = System.nanoTime();
+                for (var lane : lanes) {
+                    Entry<T> entry;
+                    while ((entry = lane.pollFirst()) != null) {
+                        if (entry.deadlineNanos != NO_DEADLINE && now - entry.deadlineNanos > 0) {
+                            lane.expired++;
+                            if (expired == null) expired = new ArrayList<>();
+                            expired.add(entry.item);
+                            continue;
+                        }
+                        return taken(lane, entry, now);
+                    }
+                }
+                if (expired != null) notFull.signalAll();
+                if (remaining <= 0) return null;
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+            if (expired != null) expired.forEach(item -> discardListener.accept(item, Discard.EXPIRED));
+        }
+    }
+
+    /**
+     * Takes the head of one class without waiting, if the predicate accepts it. Expired commands in
+     * front of it are dropped.
+     *
+     * @return null if the class is empty or the head was not accepted
+     */
+    public T poll(TrafficClass trafficClass, Predicate<T> accept) {
+        List<T> expired = null;
+        lock.lock();
+        try {
+            var lane = lanes.get(trafficClass.ordinal());
+            long now = System.nanoTime();
+            Entry<T> entry;
+            while ((entry = lane.queue.peekFirst()) != null) {
+                if (entry.deadlineNanos != NO_DEADLINE && now - entry.deadlineNanos > 0) {
+                    lane.pollFirst();
+                    lane.expired++;
+                    if (expired == null) expired = new ArrayList<>();
+                    expired.add(entry.item);
+                    continue;
+                }
+                if (!accept.test(entry.item)) return null;
+                lane.pollFirst();
+                return taken(lane, entry, now);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+            if (expired != null) expired.forEach(item -> discardListener.accept(item, Discard.EXPIRED));
+        }
+    }
+
+    private T taken(Lane<T> lane, Entry<T> entry, long now) {
+        long wait = now - entry.enqueuedNanos;
+        lane.taken++;
+        lane.waitNanos += wait;
+        lane.maxWaitNanos = Math.max(lane.maxWaitNanos, wait);
+        notFull.signalAll();
+        return entry.item;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return lanes.stream().mapToInt(lane -> lane.queue.size()).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public QueueStats stats(TrafficClass trafficClass) {
+        lock.lock();
+        try {
+            var lane = lanes.get(trafficClass.ordinal());
+            return new QueueStats(lane.queue.size(), lane.maxDepth, lane.enqueued, lane.taken, lane.dropped,
+                    lane.rejected, lane.expired, lane.coalesced,
+                    lane.taken == 0 ? 0 : lane.waitNanos / 1e6 / lane.taken, lane.maxWaitNanos / 1e6);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all queued commands without counting them as discarded.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            lanes.forEach(lane -> {
+                lane.queue.clear();
+                lane.byKey.clear();
+            });
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package tools.vlab.kberry.core.baos;
+
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.GetDatapointValue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Last known value of every datapoint of the object server, kept in the JVM.
+ * <p>
+ * Fed by indications, read responses and writes the object server accepted. Reads can be answered from
+ * here as long as the value is young enough, and an indication repeating the known value can be told
+ * apart from a real change.
+ */
+public class ValueMirror {
+
+    public enum Source {
+        INDICATION,
+        RESPONSE,
+        WRITE
+    }
+
+    /**
+     * @param dataPoint     payload and state flags as last seen
+     * @param receivedNanos {@link System#nanoTime()} when it was seen
+     */
+    public record Entry(DataPoint dataPoint, long receivedNanos, Source source) {
+
+        public Duration age() {
+            return Duration.ofNanos(System.nanoTime() - receivedNanos);
+        }
+    }
+
+    /**
+     * @param size       datapoints in the mirror
+     * @param hits       reads answered from the mirror
+     * @param misses     reads that had to go to the object server
+     * @param unchanged  updates repeating the known payload
+     */
+    public record Stats(int size, long hits, long misses, long unchanged) {
+    }
+
+    private static final List<GetDatapointValue.State> WRITTEN = List.of(GetDatapointValue.State.OK, GetDatapointValue.State.AVAILABLE);
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+
+    /**
+     * Stores the value and tells whether it differs from the known one: other payload or other availability.
+     * A written value has no state flags of its own, it is stored as available.
+     *
+     * @return true if the datapoint was unknown or its value changed
+     */
+    public boolean update(DataPoint dataPoint, Source source) {
+        var stored = source == Source.WRITE
+                ? new DataPoint(dataPoint.id(), dataPoint.payload(), WRITTEN)
+                : dataPoint;
+        var previous = entries.put(dataPoint.id().id(), new Entry(stored, System.nanoTime(), source));
+        boolean changed = previous == null
+                || previous.dataPoint().isAvailable() != stored.isAvailable()
+                || !Arrays.equals(previous.dataPoint().payload(), stored.payload());
+        if (!changed) unchanged.increment();
+        return changed;
+    }
+
+    public Optional<Entry> get(DataPointId id) {
+        return Optional.ofNullable(entries.get(id.id()));
+    }
+
+    /**
+     * The known value if it is available and not older than {@code maxAge}; counts as hit or miss.
+     */
+    public Optional<DataPoint> fresh(DataPointId id, Duration maxAge) {
+        var entry = entries.get(id.id());
+        if (entry != null && entry.dataPoint().isAvailable() && System.nanoTime() - entry.receivedNanos() <= maxAge.toNanos()) {
+            hits.increment();
+            return Optional.of(entry.dataPoint());
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void invalidate(DataPointId id) {
+        entries.remove(id.id());
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(entries.size(), hits.sum(), misses.sum(), unchanged.sum());
+    }
+}
@@ -0,0 +1,305 @@
+package tools.vlab.kberry.core.baos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of outbound datapoint commands in a memory-mapped file.
+ * <p>
+ * Every queued write is appended, every finished one (sent, rejected or expired) gets an ack record.
+ * Appending only copies into the mapping; a background thread forces the written range to disk every
+ * {@code flushInterval} (group commit), so a write never waits for an fsync. What was not forced when the
+ * process dies can be lost, at most one flush interval.
+ * <p>
+ * Opening the journal recovers the writes without ack in their original order. Of several recovered
+ * writes on the same coalescible datapoint only the last one is kept. When the file is full, the pending
+ * writes are copied into a fresh file that replaces it.
+ * <p>
+ * Record: length (int) | CRC32 (int) | type (byte) | seq (long) | for writes: expires at (long, epoch
+ * ms, 0 = never) | datapoint (short) | traffic class (byte) | coalescible (byte) | length (short) | value
+ */
+public class WriteJournal implements AutoCloseable {
+
+    private static final Logger Log = LoggerFactory.getLogger(WriteJournal.class);
+    private static final int MAGIC = 0x4B424A31; // "KBJ1"
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER = 8;
+    private static final byte WRITE = 1;
+    private static final byte ACK = 2;
+    private static final int ACK_SIZE = 1 + 8;
+
+    /**
+     * A journaled write.
+     *
+     * @param expiresAtMillis drop instead of sending after this time (epoch ms), 0 keeps it until sent
+     */
+    public record Entry(long seq, DataPoint dataPoint, TrafficClass trafficClass, long expiresAtMillis, boolean coalescible) {
+    }
+
+    /**
+     * @param pending     writes without ack
+     * @param appended    writes appended since open
+     * @param acked       acks appended since open
+     * @param flushes     group commits (forces) done
+     * @param compactions times the file was rewritten with the pending writes only
+     * @param used        bytes used of the file
+     * @param capacity    size of the file
+     */
+    public record Stats(int pending, long appended, long acked, long flushes, long compactions, int used, int capacity) {
+    }
+
+    private final Path file;
+    private final int capacity;
+    private final TreeMap<Long, Entry> pending = new TreeMap<>();
+    private final List<Entry> recovered;
+    private final ScheduledExecutorService flusher;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int flushedTo;
+    private long nextSeq;
+    private long appended, acked, compactions;
+    private volatile long flushes;
+    private boolean closed;
+
+    private WriteJournal(Path file, int capacity, Duration flushInterval) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.recovered = Files.exists(file) && Files.size(file) >= HEADER_SIZE ? recover() : List.of();
+        // neu anfangen mit den offenen Schreibaufträgen, sonst kämen überholte nach dem nächsten Ack wieder
+        rewrite();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "baos-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = flushInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    public static WriteJournal open(Path file) throws IOException {
+        return open(file, 4 << 20, Duration.ofMillis(10));
+    }
+
+    /**
+     * @param capacity      size of the mapped file in bytes
+     * @param flushInterval time between group commits
+     */
+    public static WriteJournal open(Path file, int capacity, Duration flushInterval) throws IOException {
+        return new WriteJournal(file, capacity, flushInterval);
+    }
+
+    /**
+     * Writes left from the previous run, in order, superseded ones on coalescible datapoints removed.
+     * They stay pending until acked.
+     */
+    public List<Entry> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Appends a write, durable with the next group commit.
+     *
+     * @return sequence number to {@link #ack(long)} the write with
+     * @throws IOException if the journal is closed or even the pending writes alone do not fit
+     */
+    public synchronized long append(DataPoint dataPoint, TrafficClass trafficClass, long expiresAtMillis, boolean coalescible) throws IOException {
+        if (closed) throw new IOException("Journal closed: " + file);
+        var entry = new Entry(nextSeq++, dataPoint, trafficClass, expiresAtMillis, coalescible);
+        int size = RECORD_HEADER + writeSize(entry);
+        if (position + size > capacity) {
+            compact();
+            if (position + size > capacity) throw new IOException("Journal full: " + pending.size() + " pending writes in " + file);
+        }
+        put(entry);
+        pending.put(entry.seq(), entry);
+        appended++;
+        return entry.seq();
+    }
+
+    /**
+     * Marks the write as finished; it is not recovered anymore.
+     */
+    public synchronized void ack(long seq) {
+        if (closed || pending.remove(seq) == null) return;
+        if (position + RECORD_HEADER + ACK_SIZE > capacity) {
+            try {
+                // die Quittung steckt schon darin, dass der Datensatz fehlt
+                compact();
+                acked++;
+                return;
+            } catch (IOException e) {
+                Log.error("Journal compaction failed, write {} may be sent again after restart", seq, e);
+                return;
+            }
+        }
+        var body = ByteBuffer.allocate(ACK_SIZE).put(ACK).putLong(seq);
+        putRecord(body.array());
+        acked++;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(pending.size(), appended, acked, flushes, compactions, position, capacity);
+    }
+
+    /**
+     * Forces what was appended since the last group commit to disk.
+     */
+    public void flush() {
+        MappedByteBuffer target;
+        int from, to;
+        synchronized (this) {
+            if (closed || flushedTo >= position) return;
+            target = buffer;
+            from = flushedTo;
+            to = position;
+            flushedTo = position;
+        }
+        // außerhalb der Sperre: Schreiber hängen nicht am fsync
+        target.force(from, to - from);
+        flushes++;
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.warn("Closing journal {} failed: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private static int writeSize(Entry entry) {
+        return 1 + 8 + 8 + 2 + 1 + 1 + 2 + entry.dataPoint().payload().length;
+    }
+
+    private void put(Entry entry) {
+        var body = ByteBuffer.allocate(writeSize(entry))
+                .put(WRITE)
+                .putLong(entry.seq())
+                .putLong(entry.expiresAtMillis())
+                .putShort((short) entry.dataPoint().getId())
+                .put((byte) entry.trafficClass().ordinal())
+                .put((byte) (entry.coalescible() ? 1 : 0))
+                .putShort((short) entry.dataPoint().payload().length)
+                .put(entry.dataPoint().payload());
+        putRecord(body.array());
+    }
+
+    private void putRecord(byte[] body) {
+        var crc = new CRC32();
+        crc.update(body);
+        // Länge zuletzt: ein halb geschriebener Datensatz endet beim Lesen als Länge 0 oder falsche CRC
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + RECORD_HEADER, body);
+        buffer.putInt(position, body.length);
+        position += RECORD_HEADER + body.length;
+    }
+
+    private void compact() throws IOException {
+        rewrite();
+        compactions++;
+    }
+
+    /**
+     * Writes header and pending writes into a new file and replaces the current one with it.
+     */
+    private void rewrite() throws IOException {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var mapped = out.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            mapped.putInt(0, MAGIC).putInt(4, 1);
+            var previous = buffer;
+            buffer = mapped;
+            position = HEADER_SIZE;
+            pending.values().forEach(this::put);
+            mapped.force();
+            buffer = previous;
+        }
+        if (channel != null) channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(file);
+        flushedTo = position;
+    }
+
+    private void map(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private boolean readMagic() throws IOException {
+        try (var in = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = ByteBuffer.allocate(4);
+            in.read(header, 0);
+            return header.getInt(0) == MAGIC;
+        }
+    }
+
+    private List<Entry> recover() throws IOException {
+        if (!readMagic()) {
+            Log.warn("Not a write journal, starting empty: {}", file);
+            return List.of();
+        }
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int at = HEADER_SIZE;
+        while (at + RECORD_HEADER <= bytes.limit()) {
+            int length = bytes.getInt(at);
+            if (length <= 0 || at + RECORD_HEADER + length > bytes.limit()) break;
+            byte[] body = new byte[length];
+            bytes.get(at + RECORD_HEADER, body);
+            var crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != bytes.getInt(at + 4)) {
+                Log.warn("Journal {} ends with a torn record at {}", file, at);
+                break;
+            }
+            var record = ByteBuffer.wrap(body);
+            byte type = record.get();
+            long seq = record.getLong();
+            if (type == WRITE) {
+                long expiresAt = record.getLong();
+                int id = record.getShort() & 0xFFFF;
+                var trafficClass = TrafficClass.values()[record.get()];
+                boolean coalescible = record.get() != 0;
+                byte[] payload = new byte[record.getShort() & 0xFFFF];
+                record.get(payload);
+                pending.put(seq, new Entry(seq, new DataPoint(DataPointId.id(id), payload, new ArrayList<>()), trafficClass, expiresAt, coalescible));
+            } else if (type == ACK) {
+                pending.remove(seq);
+            }
+            nextSeq = Math.max(nextSeq, seq + 1);
+            at += RECORD_HEADER + length;
+        }
+        // überholte Schreibaufträge auf denselben Datenpunkt fallen weg
+        var latest = new HashMap<Integer, Long>();
+        pending.values().stream().filter(Entry::coalescible).forEach(entry -> latest.put(entry.dataPoint().getId(), entry.seq()));
+        pending.values().removeIf(entry -> entry.coalescible() && latest.get(entry.dataPoint().getId()) != entry.seq());
+        if (!pending.isEmpty()) Log.info("Journal {}: {} writes to replay", file, pending.size());
+        return List.copyOf(pending.values());
+    }
+}
@@ -16,6 +16,10 @@ public class FT12Frame {
         private final static byte START = 0x68;
         private final static byte END = 0x16;
         private final static int CONTROL_BYTE_SIZE = 1;
+        /**
+         * Largest object server payload of one frame (length byte 255 minus control byte).
+         */
+        public final static int MAX_PAYLOAD_SIZE = 255 - CONTROL_BYTE_SIZE;
 
         private final byte[] header;
         private final byte[] control;
@@ -72,14 +76,23 @@ public class FT12Frame {
         }
 
         public static Data request(DataFramePayload osPayload, boolean isOdd) {
-            byte[] payload = osPayload.toByteArray();
+            return build(osPayload.toByteArray(), isOdd ? HOST_ODD : HOST_EVENT);
+        }
+
+        /**
+         * Frame in object server direction (response or indication), as the BAOS module would send it.
+         */
+        public static Data response(byte[] payload, boolean isOdd) {
+            return build(payload, isOdd ? OS_ODD : OS_EVENT);
+        }
+
+        private static Data build(byte[] payload, byte CR) {
             byte[] header = new byte[]{
                     START,
                     (byte) (payload.length + 1),
                     (byte) (payload.length + 1),
                     START
             };
-            byte CR = isOdd ? HOST_ODD : HOST_EVENT;
             byte checksum = ft12Checksum(CR, payload);
             byte[] tail = new byte[]{
                     checksum,
@@ -89,35 +102,43 @@ public class FT12Frame {
         }
 
         public static Data of(byte[] frame) {
-            if (frame == null || frame.length < 7) // Minimal: Header + Control + CS + Tail
-                throw new InvalidFormatException(String.format("Frame length %d is less than 7", frame != null ? frame.length : -1));
+            if (frame == null) throw new InvalidFormatException("Frame length -1 is less than 7");
+            return of(frame, 0, frame.length);
+        }
+
+        /**
+         * Parses a frame from a region of a larger buffer, e.g. a view handed out by the stream parser.
+         */
+        public static Data of(byte[] buffer, int offset, int length) {
+            if (length < 7) // Minimal: Header + Control + CS + Tail
+                throw new InvalidFormatException(String.format("Frame length %d is less than 7", length));
 
             // --- Header extrahieren ---
-            byte start1 = frame[0];
-            byte len1 = frame[1];
-            byte len2 = frame[2];
-            byte start2 = frame[3];
+            byte start1 = buffer[offset];
+            byte len1 = buffer[offset + 1];
+            byte len2 = buffer[offset + 2];
+            byte start2 = buffer[offset + 3];
 
             if (start1 != START || start2 != START)
                 throw new InvalidFormatException(String.format("Frame starts with invalid 0x68 S1:%s S2:%s", ByteUtil.toHex(start1), ByteUtil.toHex(start2)));
 
-            byte control = frame[4];
+            byte control = buffer[offset + 4];
 
             if (control != OS_EVENT && control != OS_ODD) {
                 throw new InvalidFormatException(String.format("Invalid control byte %s", ByteUtil.toHex(control)));
             }
 
             int payloadLen = (len1 & 0xFF) - CONTROL_BYTE_SIZE; // minus Control Byte
-            if (payloadLen < 0 || frame.length < 5 + payloadLen + 2)
+            if (payloadLen < 0 || length < 5 + payloadLen + 2)
                 throw new InvalidFormatException(String.format("Frame length %d is less than 5", payloadLen));
 
             // --- Payload extrahieren ---
             byte[] payload = new byte[payloadLen];
-            System.arraycopy(frame, 5, payload, 0, payloadLen);
+            System.arraycopy(buffer, offset + 5, payload, 0, payloadLen);
 
             // --- Tail extrahieren ---
-            byte checksum = frame[5 + payloadLen];
-            byte tailByte = frame[6 + payloadLen];
+            byte checksum = buffer[offset + 5 + payloadLen];
+            byte tailByte = buffer[offset + 6 + payloadLen];
 
             if (tailByte != END)
                 throw new InvalidFormatException(String.format("Invalid tail byte %s", ByteUtil.toHex(tailByte)));
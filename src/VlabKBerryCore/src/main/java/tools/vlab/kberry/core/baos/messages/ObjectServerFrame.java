@@ -0,0 +1,73 @@
+package tools.vlab.kberry.core.baos.messages;
+
+import tools.vlab.kberry.core.baos.ByteUtil;
+
+/**
+ * Framing of the BAOS binary protocol (ObjectServer protocol v2.0) over TCP.
+ * <p>
+ * Aufbau:
+ * <pre>
+ * KNXnet/IP Header   06 20 F0 80 LL LL     (Header-Länge, Version 2.0, Service ObjectServer, Gesamtlänge)
+ * Connection Header  04 00 00 00           (Länge, Channel, Sequenz, reserviert)
+ * ObjectServer       F0 xx ...             (gleicher Payload wie im FT1.2 Data Frame)
+ * </pre>
+ * TCP braucht kein Link-Layer ACK und kein ODD/EVEN Toggle, der Payload ist identisch zum FT1.2 Payload.
+ */
+public class ObjectServerFrame {
+
+    public static final int HEADER_SIZE = 6;
+    private static final byte VERSION = 0x20;
+    private static final byte SERVICE_HIGH = (byte) 0xF0;
+    private static final byte SERVICE_LOW = (byte) 0x80;
+    private static final int CONNECTION_HEADER_SIZE = 4;
+
+    private ObjectServerFrame() {
+    }
+
+    /**
+     * Wraps an ObjectServer payload (starting with the main service 0xF0) into a TCP frame.
+     */
+    public static byte[] encode(byte[] payload) {
+        int total = HEADER_SIZE + CONNECTION_HEADER_SIZE + payload.length;
+        byte[] frame = new byte[total];
+        frame[0] = HEADER_SIZE;
+        frame[1] = VERSION;
+        frame[2] = SERVICE_HIGH;
+        frame[3] = SERVICE_LOW;
+        frame[4] = (byte) (total >> 8);
+        frame[5] = (byte) total;
+        frame[6] = CONNECTION_HEADER_SIZE;
+        System.arraycopy(payload, 0, frame, HEADER_SIZE + CONNECTION_HEADER_SIZE, payload.length);
+        return frame;
+    }
+
+    /**
+     * Validates the KNXnet/IP header and returns the total frame length including the header.
+     */
+    public static int totalLength(byte[] header) {
+        if (header.length < HEADER_SIZE || header[0] != HEADER_SIZE || header[1] != VERSION) {
+            throw new InvalidFormatException(String.format("Invalid ObjectServer header %s", ByteUtil.toHex(header)));
+        }
+        if (header[2] != SERVICE_HIGH || header[3] != SERVICE_LOW) {
+            throw new InvalidFormatException(String.format("Unsupported service type %s%s", ByteUtil.toHex(header[2]), ByteUtil.toHex(header[3])));
+        }
+        int total = ByteUtil.uInt16(header, 4);
+        if (total < HEADER_SIZE + CONNECTION_HEADER_SIZE + 2) {
+            throw new InvalidFormatException(String.format("ObjectServer frame length %d too short", total));
+        }
+        return total;
+    }
+
+    /**
+     * Extracts the ObjectServer payload from the bytes following the KNXnet/IP header.
+     *
+     * @param body frame without the 6 byte KNXnet/IP header
+     */
+    public static byte[] payload(byte[] body) {
+        int connectionHeader = body[0] & 0xFF;
+        if (connectionHeader < 1 || connectionHeader >= body.length) {
+            throw new InvalidFormatException(String.format("Invalid connection header length %d", connectionHeader));
+        }
+        return ByteUtil.copy(body, connectionHeader, body.length - connectionHeader);
+    }
+}
@@ -0,0 +1,53 @@
+package tools.vlab.kberry.core.baos.messages.os;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Contiguous datapoint ids {@code start .. start + count - 1}.
+ */
+public record DataPointRange(int start, int count) {
+
+    public DataPointRange {
+        if (count < 1) throw new IllegalArgumentException("Range needs at least one datapoint: " + count);
+    }
+
+    public static DataPointRange of(DataPointId start, int count) {
+        return new DataPointRange(start.id(), count);
+    }
+
+    /**
+     * Splits the ids into the fewest contiguous ranges, in ascending order. Duplicates are ignored.
+     */
+    public static List<DataPointRange> of(Collection<DataPointId> ids) {
+        int[] sorted = ids.stream().mapToInt(DataPointId::id).sorted().distinct().toArray();
+        var ranges = new ArrayList<DataPointRange>();
+        for (int i = 0; i < sorted.length; ) {
+            int start = sorted[i];
+            int end = start;
+            while (++i < sorted.length && sorted[i] == end + 1) end++;
+            ranges.add(new DataPointRange(start, end - start + 1));
+        }
+        return ranges;
+    }
+
+    /**
+     * Last id of the range (inclusive).
+     */
+    public int end() {
+        return start + count - 1;
+    }
+
+    public boolean contains(int id) {
+        return id >= start && id <= end();
+    }
+
+    /**
+     * The rest of the range after the given id, e.g. for the follow-up request when a response did
+     * not fit all datapoints into one frame.
+     */
+    public DataPointRange after(int id) {
+        return new DataPointRange(id + 1, end() - id);
+    }
+}
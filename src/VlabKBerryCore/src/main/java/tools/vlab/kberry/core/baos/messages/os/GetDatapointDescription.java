@@ -0,0 +1,155 @@
+package tools.vlab.kberry.core.baos.messages.os;
+
+import lombok.Getter;
+import tools.vlab.kberry.core.baos.ByteUtil;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BAOS GetDatapointDescription Request / Response
+ * <p>
+ * Liefert pro Datenpunkt Werttyp (Größe), Konfigurationsflags und DPT, so wie sie per ETS geladen wurden.
+ * Nicht konfigurierte Datenpunkte fehlen in der Antwort.
+ */
+public class GetDatapointDescription {
+
+    public static class Request implements DataFramePayload {
+        public static final int MAIN_SERVICE = 0xF0;   // 1 Byte, 0..255
+        public static final int SUBSERVICE = 0x03;    // 1 Byte, 0..255
+        private final int startDatapoint;        // 2 Byte, 0..65535
+        private final int numberOfDataPoints;    // 2 Byte, 0..65535
+
+        public Request(int startDatapoint, int numberOfDataPoints) {
+            this.startDatapoint = startDatapoint;
+            this.numberOfDataPoints = numberOfDataPoints;
+        }
+
+        public static Request range(DataPointRange range) {
+            return new Request(range.start(), range.count());
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            ByteBuffer buf = ByteBuffer.allocate(6);
+            buf.order(ByteOrder.BIG_ENDIAN); // BAOS uses Big Endian
+            buf.put((byte) MAIN_SERVICE);
+            buf.put((byte) SUBSERVICE);
+            buf.putShort((short) startDatapoint);
+            buf.putShort((short) numberOfDataPoints);
+            return buf.array();
+        }
+
+        @Override
+        public int getId() {
+            return this.startDatapoint;
+        }
+
+        @Override
+        public String toHex() {
+            return ByteUtil.toHex(this.toByteArray());
+        }
+
+        @Override
+        public Service getService() {
+            return Service.from(SUBSERVICE);
+        }
+    }
+
+    /**
+     * @param valueType size code of the value: 0..6 = 1..7 bit, 7 = 1 byte, 8 = 2, 9 = 3, 10 = 4, 11 = 6,
+     *                  12 = 8, 13 = 10, 14 = 14 bytes
+     * @param flags     bit 0-1 transmit priority, 2 communication, 3 read, 4 write, 5 read on init,
+     *                  6 transmit, 7 update
+     * @param dpt       datapoint type code as configured in ETS, 0 if none
+     */
+    public record Description(DataPointId id, int valueType, int flags, int dpt) {
+
+        private static final int[] BITS = {1, 2, 3, 4, 5, 6, 7, 8, 16, 24, 32, 48, 64, 80, 112};
+
+        /**
+         * Size of the value in bits, -1 for an unknown value type.
+         */
+        public int sizeInBits() {
+            return valueType >= 0 && valueType < BITS.length ? BITS[valueType] : -1;
+        }
+
+        public boolean isCommunication() {
+            return (flags & 0x04) != 0;
+        }
+
+        public boolean isRead() {
+            return (flags & 0x08) != 0;
+        }
+
+        public boolean isWrite() {
+            return (flags & 0x10) != 0;
+        }
+
+        public boolean isReadOnInit() {
+            return (flags & 0x20) != 0;
+        }
+
+        public boolean isTransmit() {
+            return (flags & 0x40) != 0;
+        }
+
+        public boolean isUpdate() {
+            return (flags & 0x80) != 0;
+        }
+    }
+
+    @Getter
+    public static class Response {
+
+        private final int mainService;
+        private final int subService;
+        private final DataPointId startDatapoint;
+        private final Error error;
+        private final List<Description> descriptions;
+
+        private Response(int mainService, int subService, DataPointId startDatapoint, Error error, List<Description> descriptions) {
+            this.mainService = mainService;
+            this.subService = subService;
+            this.startDatapoint = startDatapoint;
+            this.error = error;
+            this.descriptions = descriptions;
+        }
+
+        public static Response frameData(FT12Frame.Data frameData) {
+            byte[] payload = frameData.getPayload();
+            int mainService = ByteUtil.uInt8(payload, 0);
+            int subService = ByteUtil.uInt8(payload, 1);
+            int startDataPoint = ByteUtil.uInt16(payload, 2);
+            int numberOfItems = ByteUtil.uInt16(payload, 4);
+
+            // Error
+            if (numberOfItems <= 0) {
+                int errorCode = ByteUtil.uInt8(payload, 6);
+                return new Response(mainService, subService, DataPointId.id(startDataPoint), Error.withCode(errorCode), new ArrayList<>());
+            }
+
+            // Success: DP (2) | Value Type (1) | Config Flags (1) | DPT (1)
+            var descriptions = new ArrayList<Description>();
+            for (int i = 0, itemIndex = 6; i < numberOfItems; i++, itemIndex += 5) {
+                descriptions.add(new Description(
+                        DataPointId.id(ByteUtil.uInt16(payload, itemIndex)),
+                        ByteUtil.uInt8(payload, itemIndex + 2),
+                        ByteUtil.uInt8(payload, itemIndex + 3),
+                        ByteUtil.uInt8(payload, itemIndex + 4)));
+            }
+            return new Response(mainService, subService, DataPointId.id(startDataPoint), Error.OK, descriptions);
+        }
+
+        public boolean isValid() {
+            return mainService == 0xF0 && subService == 0x83;
+        }
+
+        public boolean isSuccess() {
+            return error == Error.OK;
+        }
+    }
+}
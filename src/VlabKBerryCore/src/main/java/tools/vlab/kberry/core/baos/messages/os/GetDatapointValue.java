@@ -41,6 +41,10 @@ public class GetDatapointValue {
             return new Request(Filter.NONE, id.id(), 1);
         }
 
+        public static Request range(DataPointRange range) {
+            return new Request(Filter.NONE, range.start(), range.count());
+        }
+
         @Override
         public byte[] toByteArray() {
             ByteBuffer buf = ByteBuffer.allocate(7);
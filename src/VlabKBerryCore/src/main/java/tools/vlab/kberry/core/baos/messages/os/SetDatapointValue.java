@@ -5,27 +5,31 @@ import tools.vlab.kberry.core.baos.messages.FT12Frame;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.List;
 
 public class SetDatapointValue {
 
     public static class Request implements DataFramePayload {
         public static final int MAIN_SERVICE = 0xF0;   // 1 Byte, 0..255
         public static final int SUBSERVICE = 0x06;    // 1 Byte, 0..255
+        public static final int HEADER_SIZE = 6;
+        private static final int COMMAND_HEADER_SIZE = 4;
         private final int startDatapointId;        // 2 Byte, 0..65535
-        private final int numberOfDataPoints;
-        private final DataPointCommand command;
+        private final List<DataPointCommand> commands;
 
-        public Request(int startDatapointId, int numberOfDataPoints, DataPointCommand command) {
+        public Request(int startDatapointId, DataPointCommand command) {
+            this(startDatapointId, List.of(command));
+        }
+
+        private Request(int startDatapointId, List<DataPointCommand> commands) {
             this.startDatapointId = startDatapointId;
-            this.numberOfDataPoints = numberOfDataPoints;
-            this.command = command;
+            this.commands = commands;
         }
 
         public static Request updateCache(DataPointId dpIds) {
             var commands = new DataPointCommand(dpIds, Command.READ_VALUE_ON_BUS, new byte[0]);
             var startPointId = dpIds.id();
-            var numberOfDataPoints = 1;
-            return new Request(startPointId, numberOfDataPoints, commands);
+            return new Request(startPointId, commands);
         }
 
         public static Request setCacheAndBus(DataPoint dataPoint) {
@@ -35,30 +39,57 @@ public class SetDatapointValue {
                     dataPoint.payload()
             );
             var startPointId = dataPoint.id().id();
-            var numberOfDataPoints = 1;
-            return new Request(startPointId, numberOfDataPoints, commands);
+            return new Request(startPointId, commands);
+        }
+
+        /**
+         * One request with a SET_CACHE_AND_SEND_BUS command per datapoint, applied by the object server in
+         * list order. The start datapoint is the first one of the list.
+         */
+        public static Request setCacheAndBus(List<DataPoint> dataPoints) {
+            if (dataPoints.isEmpty()) throw new IllegalArgumentException("No datapoints");
+            var commands = dataPoints.stream()
+                    .map(dp -> new DataPointCommand(dp.id(), Command.SET_CACHE_AND_SEND_BUS, dp.payload()))
+                    .toList();
+            return new Request(dataPoints.getFirst().id().id(), commands);
+        }
+
+        /**
+         * Bytes a SET_CACHE_AND_SEND_BUS command for the datapoint adds to a request.
+         */
+        public static int commandSize(DataPoint dataPoint) {
+            return COMMAND_HEADER_SIZE + dataPoint.payload().length;
+        }
+
+        public List<DataPointCommand> getCommands() {
+            return commands;
         }
 
         public static Request clearDPStatus(DataPointId dpIds) {
             var commands = new DataPointCommand(dpIds, Command.CLEAR_DP_STATUS, new byte[0]);
             var startPointId = dpIds.id();
-            var numberOfDataPoints = 1;
-            return new Request(startPointId, numberOfDataPoints, commands);
+            return new Request(startPointId, commands);
         }
 
         @Override
         public byte[] toByteArray() {
-            ByteBuffer buf = ByteBuffer.allocate(10 + command.payload.length);
+            int size = HEADER_SIZE;
+            for (var command : commands) {
+                size += COMMAND_HEADER_SIZE + command.payload.length;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(size);
             buf.order(ByteOrder.BIG_ENDIAN);
             buf.put((byte) MAIN_SERVICE);
             buf.put((byte) SUBSERVICE);
             buf.putShort((short) startDatapointId);
-            buf.putShort((short) numberOfDataPoints);
-            // Command
-            buf.putShort((short) command.id.id());
-            buf.put(command.cmd.toByte());
-            buf.put((byte) command.payload.length);
-            buf.put(command.payload);
+            buf.putShort((short) commands.size());
+            // Commands
+            for (var command : commands) {
+                buf.putShort((short) command.id.id());
+                buf.put(command.cmd.toByte());
+                buf.put((byte) command.payload.length);
+                buf.put(command.payload);
+            }
             return buf.array();
         }
 
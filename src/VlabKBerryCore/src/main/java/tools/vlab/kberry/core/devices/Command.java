@@ -67,6 +67,17 @@ public enum Command {
         this.dataType = dataType;
     }
 
+    /**
+     * False for command style datapoints where every write is an event of its own, a newer write must
+     * not replace a queued older one.
+     */
+    public boolean isCoalescible() {
+        return switch (this) {
+            case STOP, SHUTTER_REFERENCE, SCENE_ACTIVATION -> false;
+            default -> true;
+        };
+    }
+
     public String getId() {
         return this.name().trim().replaceAll(" ", "_").toUpperCase();
     }
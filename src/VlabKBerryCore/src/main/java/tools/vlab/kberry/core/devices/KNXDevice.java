@@ -6,8 +6,10 @@ import org.slf4j.LoggerFactory;
 import tools.vlab.kberry.core.PositionPath;
 import tools.vlab.kberry.core.baos.*;
 import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -26,6 +28,7 @@ public abstract class KNXDevice {
     private SerialBAOSConnection connection;
     private final Command[] cmd;
     private final ConcurrentHashMap<Command, BAOSObject> BAOMap = new ConcurrentHashMap<>();
+    private final List<Subscribers.Subscription> subscriptions = new ArrayList<>();
     private final Integer refreshIntervallMs;
     @Getter
     private final String id = UUID.randomUUID().toString();
@@ -44,10 +47,16 @@ public abstract class KNXDevice {
     protected void register(SerialBAOSConnection connection, List<BAOSObject> baoObjects) {
         this.connection = connection;
         this.BAOMap.clear();
+        // erneutes Registrieren darf die Listener nicht doppeln
+        this.subscriptions.forEach(Subscribers.Subscription::unsubscribe);
+        this.subscriptions.clear();
         baoObjects.forEach(bao -> {
             BAOMap.put(bao.command(), bao);
+            if (!bao.command().isCoalescible()) {
+                connection.setCoalescing(bao.dataPointId(), false);
+            }
             if (bao.command().communication == Communication.READ || bao.command().communication == Communication.READWRITE) {
-                connection.onValueChanged(bao.dataPointId(), (dataPoint) -> this.received(bao.command(), dataPoint));
+                subscriptions.add(connection.onValueChanged(bao.dataPointId(), (dataPoint) -> this.received(bao.command(), dataPoint)));
             }
         });
     }
@@ -64,38 +73,38 @@ public abstract class KNXDevice {
         }
     }
 
-    protected void set(Command command, boolean value) {
-        set(command, value, false);
+    protected CompletableFuture<Void> set(Command command, boolean value) {
+        return set(command, value, false);
     }
 
-    protected void set(Command command, boolean value, boolean priority) {
+    protected CompletableFuture<Void> set(Command command, boolean value, boolean priority) {
         this.validate(command);
         var bao = BAOMap.get(command);
         if (Objects.requireNonNull(bao.datapointType()) == KnxDatapointType.BOOLEAN) {
-            this.write(DataPoint.bool(bao.dataPointId(), value), priority);
+            return this.write(DataPoint.bool(bao.dataPointId(), value), priority);
         } else {
             throw new InvalidCommandException(String.format("Unknown command %s", command));
         }
     }
 
-    protected void set(Command command, HeaterMode mode) {
+    protected CompletableFuture<Void> set(Command command, HeaterMode mode) {
         this.validate(command);
         var bao = BAOMap.get(command);
         if (Objects.requireNonNull(bao.datapointType()) == KnxDatapointType.HVAC_MODE) {
-            this.write(DataPoint.hvac(bao.dataPointId(), mode), false);
+            return this.write(DataPoint.hvac(bao.dataPointId(), mode), false);
         } else {
             throw new InvalidCommandException(String.format("Unknown command %s", command));
         }
     }
 
-    protected void set(Command command, int value) {
-        set(command, value, false);
+    protected CompletableFuture<Void> set(Command command, int value) {
+        return set(command, value, false);
     }
 
-    protected void set(Command command, int value, boolean priority) {
+    protected CompletableFuture<Void> set(Command command, int value, boolean priority) {
         this.validate(command);
         var bao = BAOMap.get(command);
-        switch (bao.datapointType()) {
+        return switch (bao.datapointType()) {
             case INT8 -> this.write(DataPoint.int8(bao.dataPointId(), value), priority);
             case SINT8 -> this.write(DataPoint.sInt8(bao.dataPointId(), value), priority);
             case SINT16 -> this.write(DataPoint.sint16(bao.dataPointId(), value), priority);
@@ -104,32 +113,32 @@ public abstract class KNXDevice {
             case UINT16 -> this.write(DataPoint.uInt16(bao.dataPointId(), value), priority);
             case UINT32 -> this.write(DataPoint.uint32(bao.dataPointId(), value), priority);
             default -> throw new InvalidCommandException(String.format("Unknown command %s", command));
-        }
+        };
     }
 
-    protected void set(Command command, float value) {
-        set(command, value, false);
+    protected CompletableFuture<Void> set(Command command, float value) {
+        return set(command, value, false);
     }
 
-    protected void set(Command command, float value, boolean priority) {
+    protected CompletableFuture<Void> set(Command command, float value, boolean priority) {
         this.validate(command);
         var bao = BAOMap.get(command);
-        switch (bao.datapointType()) {
+        return switch (bao.datapointType()) {
             case FLOAT9 -> this.write(DataPoint.float9(bao.dataPointId(), value), priority);
             case FLOAT32 -> this.write(DataPoint.float32(bao.dataPointId(), value), priority);
             default -> throw new InvalidCommandException(String.format("Unknown command %s", command));
-        }
+        };
     }
 
-    protected void set(Command command, RGB value) {
-        set(command, value, false);
+    protected CompletableFuture<Void> set(Command command, RGB value) {
+        return set(command, value, false);
     }
 
-    protected void set(Command command, RGB value, boolean priority) {
+    protected CompletableFuture<Void> set(Command command, RGB value, boolean priority) {
         this.validate(command);
         var bao = BAOMap.get(command);
         if (Objects.requireNonNull(bao.datapointType()) == KnxDatapointType.RGB) {
-            this.write(DataPoint.rgb(bao.dataPointId(), value), priority);
+            return this.write(DataPoint.rgb(bao.dataPointId(), value), priority);
         } else {
             throw new InvalidCommandException(String.format("Unknown command %s", command));
         }
@@ -146,6 +155,19 @@ public abstract class KNXDevice {
         }
     }
 
+    /**
+     * Reads the datapoint of the command without blocking the caller. The future fails with the typed
+     * failure of {@link SerialBAOSConnection#readAsync(DataPointId)}.
+     */
+    public CompletableFuture<DataPoint> getAsync(Command command) {
+        var bao = BAOMap.get(command);
+        if (bao == null) {
+            return CompletableFuture.failedFuture(new UnknownBAOCommandException(
+                    String.format("Unknown command %s for device %s", command.name(), this.getClass().getSimpleName())));
+        }
+        return this.connection.readAsync(bao.dataPointId());
+    }
+
     public void start() throws BAOSReadException {
         if (refreshIntervallMs != null) {
             running = true;
@@ -185,11 +207,17 @@ public abstract class KNXDevice {
     }
 
 
-    public void write(DataPoint dataPoint, boolean priority) {
+    /**
+     * Queues the datapoint; failures are logged and passed on through the returned future.
+     */
+    public CompletableFuture<Void> write(DataPoint dataPoint, boolean priority) {
         try {
-            this.connection.write(dataPoint, priority);
+            return this.connection.write(dataPoint, priority).whenComplete((ok, failure) -> {
+                if (failure != null) Log.error("Failed to write data point {}: {}", dataPoint.getId(), failure.getMessage());
+            });
         } catch (Exception e) {
             Log.error("Failed to write data point!", e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -6,14 +6,20 @@ import tools.vlab.kberry.core.PositionPath;
 import tools.vlab.kberry.core.ReloadDevice;
 import tools.vlab.kberry.core.baos.BAOSObject;
 import tools.vlab.kberry.core.baos.BAOSReadException;
+import tools.vlab.kberry.core.baos.DescriptionCache;
 import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.TimeoutException;
 import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.GetDatapointDescription;
 
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -31,7 +37,9 @@ import java.util.stream.Collectors;
  *
  * <p>
  * Each registered {@link KNXDevice} is mapped to one or more {@link BAOSObject}s.
- * Datapoint IDs are assigned sequentially and managed internally.
+ * Datapoint IDs are assigned sequentially per BAOS module and managed internally.
+ * Larger installations can spread their devices over several modules (shards),
+ * see {@link ShardSelector}.
  *
  * <p>
  * The class implements {@link ReloadDevice} and is automatically triggered
@@ -42,9 +50,9 @@ public class KNXDevices implements ReloadDevice {
     private static final Logger Log = LoggerFactory.getLogger(KNXDevices.class);
 
     private final Vector<KNXDevice> devices = new Vector<>();
-    private final AtomicInteger counter = new AtomicInteger(1);
-    private final Vector<BAOSObject> allBAOList = new Vector<>();
-    private final SerialBAOSConnection connection;
+    private final List<Shard> shards;
+    private final ShardSelector shardSelector;
+    private volatile DescriptionCache descriptionCache = new DescriptionCache(Paths.get("storage"));
 
     /**
      * Creates a new KNXDevices registry bound to a BAOS serial connection.
@@ -56,18 +64,88 @@ public class KNXDevices implements ReloadDevice {
      * @param connection active {@link SerialBAOSConnection}
      */
     public KNXDevices(SerialBAOSConnection connection) {
-        this.connection = connection;
-        this.connection.setReloadDevice(this);
+        this(List.of(connection), ShardSelector.first());
     }
 
     /**
-     * Returns a BAOS object by its datapoint ID.
+     * Creates a registry spread over several BAOS modules.
+     *
+     * <p>
+     * Every connection is one shard with its own datapoint ID range, CSV export
+     * and reload handler. Devices are placed by the {@link ShardSelector} unless
+     * registered with an explicit shard. Each connection keeps its own reader,
+     * writer and indicator threads, so traffic on different modules runs in parallel.
+     *
+     * @param connections   one connection per BAOS module
+     * @param shardSelector placement of devices registered without explicit shard
+     */
+    public KNXDevices(List<SerialBAOSConnection> connections, ShardSelector shardSelector) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("At least one connection is required");
+        }
+        this.shardSelector = shardSelector;
+        var shardList = new ArrayList<Shard>();
+        for (int i = 0; i < connections.size(); i++) {
+            var shard = new Shard(i, connections.get(i));
+            shard.connection.setReloadDevice(() -> load(shard));
+            shardList.add(shard);
+        }
+        this.shards = List.copyOf(shardList);
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final SerialBAOSConnection connection;
+        private final AtomicInteger counter = new AtomicInteger(1);
+        private final Vector<BAOSObject> baoList = new Vector<>();
+        private final Vector<KNXDevice> devices = new Vector<>();
+
+        private Shard(int index, SerialBAOSConnection connection) {
+            this.index = index;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * Returns a BAOS object by its datapoint ID on the first module.
      *
      * @param objectId datapoint ID
      * @return optional BAOSObject if present
      */
     public Optional<BAOSObject> getBao(int objectId) {
-        return this.allBAOList.stream().filter(bao -> bao.dataPointId().isSame(objectId)).findFirst();
+        return getBao(0, objectId);
+    }
+
+    /**
+     * Returns a BAOS object by module and datapoint ID.
+     *
+     * @param shard    module index
+     * @param objectId datapoint ID
+     * @return optional BAOSObject if present
+     */
+    public Optional<BAOSObject> getBao(int shard, int objectId) {
+        return this.shards.get(shard).baoList.stream().filter(bao -> bao.dataPointId().isSame(objectId)).findFirst();
+    }
+
+    /**
+     * Number of BAOS modules managed by this registry.
+     */
+    public int getShardCount() {
+        return this.shards.size();
+    }
+
+    public SerialBAOSConnection getConnection(int shard) {
+        return this.shards.get(shard).connection;
+    }
+
+    /**
+     * Returns the module index the device is registered on.
+     */
+    public OptionalInt getShard(KNXDevice device) {
+        return this.shards.stream()
+                .filter(shard -> shard.devices.contains(device))
+                .mapToInt(shard -> shard.index)
+                .findFirst();
     }
 
     /**
@@ -86,13 +164,31 @@ public class KNXDevices implements ReloadDevice {
      * @param device device instance to register
      */
     public <T extends KNXDevice> void register(T device) {
+        register(device, shardSelector.shardOf(device.getPositionPath(), shards.size()));
+    }
+
+    /**
+     * Registers a KNX device on an explicit BAOS module.
+     *
+     * <p>
+     * Datapoint IDs are unique per module only.
+     *
+     * @param device device instance to register
+     * @param shard  module index
+     */
+    public <T extends KNXDevice> void register(T device, int shard) {
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalArgumentException("Invalid shard " + shard + " (modules: " + shards.size() + ")");
+        }
+        var target = this.shards.get(shard);
         this.devices.add(device);
+        target.devices.add(device);
         var baoList = new ArrayList<BAOSObject>();
         for (var cmd : device.getCommands()) {
-            baoList.add(new BAOSObject(DataPointId.id(this.counter.getAndIncrement()), device.getClass().getSimpleName(), cmd, device.getPositionPath(), cmd.dataType));
+            baoList.add(new BAOSObject(DataPointId.id(target.counter.getAndIncrement()), device.getClass().getSimpleName(), cmd, device.getPositionPath(), cmd.dataType));
         }
-        device.register(this.connection, baoList);
-        this.allBAOList.addAll(baoList);
+        device.register(target.connection, baoList);
+        target.baoList.addAll(baoList);
     }
 
     /**
@@ -100,21 +196,41 @@ public class KNXDevices implements ReloadDevice {
      *
      * <p>
      * The generated file is compatible with the Weinzierl BAOS ETS importer.
+     * With several modules one file per module is written, named
+     * {@code <name>_module<N>.csv} next to the given path.
      *
      * @param filePath destination CSV file path
      * @throws IOException if file writing fails
      */
     public void exportCSV(Path filePath) throws IOException {
+        for (Shard shard : shards) {
+            var target = shards.size() == 1 ? filePath : modulePath(filePath, shard.index);
+            exportCSV(target, shard);
+            System.out.println("Konfiguration exportiert nach: " + target);
+        }
+    }
+
+    private static Path modulePath(Path filePath, int shard) {
+        String name = filePath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : ".csv";
+        return filePath.resolveSibling(base + "_module" + (shard + 1) + extension);
+    }
+
+    private void exportCSV(Path filePath, Shard shard) throws IOException {
         try (FileWriter writer = new FileWriter(filePath.toFile())) {
             writer.append("""
                     Csv version;1.2;;;;
                     Project name;Familie Radle;;;;
                     Device type;BAOS Module;;;;
-                    Device name;KNX BAOS 830;;;;
-                    ;;;;;
                     """);
+            writer.append(shards.size() == 1
+                    ? "Device name;KNX BAOS 830;;;;\n"
+                    : String.format("Device name;KNX BAOS 830 Modul %d;;;;\n", shard.index + 1));
+            writer.append(";;;;;\n");
             writer.append("Type;ID;DPT;Description;Addr/Val\n"); // Header ohne GA
-            for (BAOSObject bao : allBAOList) {
+            for (BAOSObject bao : shard.baoList) {
                 writer.append(String.format("%s;%d;DPT-%s;%s;\n",
                         "DP",
                         bao.dataPointId().id(),
@@ -122,7 +238,120 @@ public class KNXDevices implements ReloadDevice {
                         bao.getName()));
             }
         }
-        System.out.println("Konfiguration exportiert nach: " + filePath);
+    }
+
+    /**
+     * Where the datapoint descriptions of the modules are kept between startups (default {@code storage}),
+     * {@code null} asks the modules on every {@link #validate()}.
+     */
+    public void setDescriptionCache(DescriptionCache descriptionCache) {
+        this.descriptionCache = descriptionCache;
+    }
+
+    /**
+     * Connects all modules in parallel and {@link #validate() validates} their datapoints.
+     *
+     * @throws TimeoutException if any module could not be connected
+     */
+    public void connect() throws TimeoutException {
+        var failures = new Vector<TimeoutException>();
+        forEachShard(shard -> {
+            try {
+                shard.connection.connect();
+                validate(shard).forEach(problem -> Log.error("Module {}: {}", shard.index + 1, problem));
+            } catch (TimeoutException e) {
+                failures.add(e);
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+    }
+
+    public void disconnect() {
+        forEachShard(shard -> shard.connection.disconnect());
+    }
+
+    /**
+     * Checks every registered datapoint against the description the module got from ETS: configured,
+     * value size matching the DPT, communication flag set, transmit flag for written and write or update
+     * flag for read datapoints.
+     *
+     * <p>
+     * The descriptions are read with as few GetDatapointDescription requests as possible and cached per
+     * module application, so later startups only ask for datapoints registered since.
+     *
+     * @return one line per problem found, empty if all modules match
+     */
+    public List<String> validate() {
+        var problems = new Vector<String>();
+        forEachShard(shard -> validate(shard).forEach(problem -> problems.add("Module " + (shard.index + 1) + ": " + problem)));
+        return problems;
+    }
+
+    private List<String> validate(Shard shard) {
+        var baos = List.copyOf(shard.baoList);
+        if (baos.isEmpty()) return List.of();
+        DescriptionCache.Catalog catalog;
+        try {
+            var cache = this.descriptionCache;
+            String key = cache == null ? null : shard.connection.getApplicationKey();
+            var cached = cache == null ? DescriptionCache.Catalog.empty() : cache.load(key);
+            var missing = baos.stream().map(BAOSObject::dataPointId).filter(id -> !cached.covers(id)).toList();
+            catalog = cached;
+            if (!missing.isEmpty()) {
+                catalog = cached.with(missing, shard.connection.describeAll(missing));
+                if (cache != null) cache.store(key, catalog);
+            }
+        } catch (TimeoutException | BAOSReadException e) {
+            Log.warn("Datapoint validation of module {} skipped: {}", shard.index + 1, e.getMessage());
+            return List.of();
+        }
+        var problems = new ArrayList<String>();
+        for (var bao : baos) {
+            var description = catalog.get(bao.dataPointId());
+            if (description.isEmpty()) {
+                problems.add(String.format("%s (DP %d) is not configured in the module", bao.getName(), bao.dataPointId().id()));
+            } else {
+                check(bao, description.get()).ifPresent(problems::add);
+            }
+        }
+        return problems;
+    }
+
+    private static Optional<String> check(BAOSObject bao, GetDatapointDescription.Description description) {
+        var issues = new ArrayList<String>();
+        int expectedBits = bao.datapointType().sizeInBits();
+        if (description.sizeInBits() != expectedBits) {
+            issues.add(String.format("value size %d bit instead of %d bit (%s)", description.sizeInBits(), expectedBits, bao.datapointType()));
+        }
+        if (!description.isCommunication()) {
+            issues.add("communication flag not set");
+        }
+        var communication = bao.command().communication;
+        boolean written = communication == Communication.WRITE || communication == Communication.READWRITE;
+        boolean read = communication == Communication.READ || communication == Communication.READWRITE;
+        if (written && !description.isTransmit()) {
+            issues.add("transmit flag not set");
+        }
+        if (read && !description.isWrite() && !description.isUpdate()) {
+            issues.add("neither write nor update flag set");
+        }
+        if (issues.isEmpty()) return Optional.empty();
+        return Optional.of(String.format("%s (DP %d): %s", bao.getName(), bao.dataPointId().id(), String.join(", ", issues)));
+    }
+
+    /**
+     * Runs the action for every module on its own (virtual) thread and waits for all of them.
+     */
+    private void forEachShard(Consumer<Shard> action) {
+        if (shards.size() == 1) {
+            action.accept(shards.get(0));
+            return;
+        }
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            shards.forEach(shard -> executor.execute(() -> action.accept(shard)));
+        }
     }
 
     /**
@@ -242,11 +471,15 @@ public class KNXDevices implements ReloadDevice {
      *
      * <p>
      * Each device is responsible for restoring its state from cache or by
-     * querying the Object Server.
+     * querying the Object Server. Modules are reloaded in parallel.
      */
     @Override
     public void load() {
-        this.getAllDevices().forEach(device -> {
+        forEachShard(this::load);
+    }
+
+    private void load(Shard shard) {
+        shard.devices.forEach(device -> {
             try {
                 device.load();
             } catch (BAOSReadException e) {
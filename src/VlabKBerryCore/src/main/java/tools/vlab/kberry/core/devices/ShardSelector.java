@@ -0,0 +1,38 @@
+package tools.vlab.kberry.core.devices;
+
+import tools.vlab.kberry.core.PositionPath;
+
+/**
+ * Decides on which BAOS module (shard) a device is registered.
+ */
+@FunctionalInterface
+public interface ShardSelector {
+
+    /**
+     * @param positionPath position of the device
+     * @param shards       number of available modules
+     * @return shard index between 0 and {@code shards - 1}
+     */
+    int shardOf(PositionPath positionPath, int shards);
+
+    /**
+     * All devices of one location share a module.
+     */
+    static ShardSelector byLocation() {
+        return (path, shards) -> Math.floorMod(path.getLocation().toLowerCase().hashCode(), shards);
+    }
+
+    /**
+     * All devices of one floor (per location) share a module.
+     */
+    static ShardSelector byFloor() {
+        return (path, shards) -> Math.floorMod((path.getLocation() + "." + path.getFloor()).toLowerCase().hashCode(), shards);
+    }
+
+    /**
+     * Everything on the first module, used for single module setups.
+     */
+    static ShardSelector first() {
+        return (path, shards) -> 0;
+    }
+}
@@ -0,0 +1,72 @@
+package tools.vlab.kberry.core;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.BAOSReader;
+import tools.vlab.kberry.core.baos.BAOSWriter;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.GetDatapointValue;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoopbackTransportTest {
+
+    @Test
+    void testFragmentedDeliveryKeepsOrder() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(1), 3);
+        var received = new ByteArrayOutputStream();
+        var maxChunk = new AtomicInteger();
+        var done = new CountDownLatch(1);
+        pair.device().addListener(data -> {
+            synchronized (received) {
+                maxChunk.accumulateAndGet(data.length, Math::max);
+                received.writeBytes(data);
+                if (received.size() == 10) done.countDown();
+            }
+        });
+        pair.host().openPort();
+        pair.device().openPort();
+
+        pair.host().writeBytes(new byte[]{0, 1, 2, 3, 4});
+        pair.host().writeBytes(new byte[]{5, 6, 7, 8, 9});
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, received.toByteArray());
+        assertEquals(3, maxChunk.get());
+    }
+
+    @Test
+    void testReaderWriterAgainstSimulatedObjectServer() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 2);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(5, new byte[]{0x01});
+        var writer = new BAOSWriter(pair.host());
+        var reader = new BAOSReader(pair.host(), writer);
+        pair.host().openPort();
+        writer.start();
+        reader.start();
+        try {
+            long resetAt = System.currentTimeMillis();
+            writer.sendReset();
+            reader.waitForAck(resetAt, 1000);
+
+            var request = GetDatapointValue.Request.getDP(DataPointId.id(5));
+            var future = reader.responseOf(request, 1000);
+            writer.sendDataFrame(request);
+            var response = GetDatapointValue.Response.frameData(future.waitForResult());
+
+            assertTrue(response.isSuccess());
+            assertEquals(0x01, response.getFirstDataPoint().orElseThrow().payload()[0]);
+        } finally {
+            writer.stop();
+            simulator.shutdown();
+            pair.host().closePort();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package tools.vlab.kberry.core;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.BAOSReader;
+import tools.vlab.kberry.core.baos.BAOSWriter;
+import tools.vlab.kberry.core.baos.messages.ObjectServerFrame;
+import tools.vlab.kberry.core.baos.messages.os.GetServerItem;
+import tools.vlab.kberry.core.baos.messages.os.Indicator;
+import tools.vlab.kberry.core.baos.messages.os.ServerItemId;
+
+import java.io.DataInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpTransportTest {
+
+    @Test
+    void testRequestResponseAndIndicationOverTcp() throws Exception {
+        try (var server = new ServerSocket(0)) {
+            var request = GetServerItem.Request.create().serverItem(ServerItemId.BUS_CONNECTION_STATE);
+            var standIn = new Thread(() -> {
+                try (Socket client = server.accept()) {
+                    var in = new DataInputStream(client.getInputStream());
+                    byte[] header = new byte[ObjectServerFrame.HEADER_SIZE];
+                    in.readFully(header);
+                    byte[] body = new byte[ObjectServerFrame.totalLength(header) - ObjectServerFrame.HEADER_SIZE];
+                    in.readFully(body);
+                    if (!Arrays.equals(request.toByteArray(), ObjectServerFrame.payload(body))) return;
+                    var out = client.getOutputStream();
+                    // GetServerItem.Res: BUS_CONNECTION_STATE = 1
+                    out.write(ObjectServerFrame.encode(new byte[]{(byte) 0xF0, (byte) 0x81, 0x00, 0x0A, 0x00, 0x01, 0x00, 0x0A, 0x01, 0x01}));
+                    // DatapointValue.Ind: DP 3 = 0x01
+                    out.write(ObjectServerFrame.encode(new byte[]{(byte) 0xF0, (byte) 0xC1, 0x00, 0x03, 0x00, 0x01, 0x00, 0x03, 0x18, 0x01, 0x01}));
+                    out.flush();
+                    in.read();
+                } catch (Exception ignored) {
+                }
+            });
+            standIn.start();
+
+            var transport = new TcpTransport("127.0.0.1", server.getLocalPort(), 1000);
+            var writer = new BAOSWriter(transport);
+            var reader = new BAOSReader(transport, writer);
+            assertTrue(transport.openPort());
+            writer.start();
+            reader.start();
+            try {
+                long resetAt = System.currentTimeMillis();
+                writer.sendReset();
+                reader.waitForAck(resetAt, 1000);
+
+                var future = reader.responseOf(request, 1000);
+                writer.sendDataFrame(request);
+                var response = GetServerItem.Response.frameData(future.waitForResult());
+                assertTrue(response.isSuccess());
+                assertTrue(response.getItems().get(0).boolData());
+
+                long deadline = System.currentTimeMillis() + 1000;
+                var indicator = reader.nextIndicator();
+                while (indicator.isEmpty() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                    indicator = reader.nextIndicator();
+                }
+                assertEquals(Indicator.DP_VALUE_IND, indicator.orElseThrow().getIndicator());
+            } finally {
+                writer.stop();
+                transport.closePort();
+            }
+        }
+    }
+
+    @Test
+    void testFailingListenerDoesNotStopTheReader() throws Exception {
+        try (var server = new ServerSocket(0)) {
+            var standIn = new Thread(() -> {
+                try (Socket client = server.accept()) {
+                    var out = client.getOutputStream();
+                    for (int value = 0; value < 2; value++) {
+                        out.write(ObjectServerFrame.encode(new byte[]{(byte) 0xF0, (byte) 0xC1, 0x00, 0x03, 0x00, 0x01, 0x00, 0x03, 0x18, 0x01, (byte) value}));
+                        out.flush();
+                    }
+                    client.getInputStream().read();
+                } catch (Exception ignored) {
+                }
+            });
+            standIn.start();
+
+            var transport = new TcpTransport("127.0.0.1", server.getLocalPort(), 1000);
+            var received = new CountDownLatch(2);
+            // der fehlerhafte Listener zuerst: der zweite bekommt trotzdem jeden Frame
+            transport.addListener(data -> {
+                throw new IllegalStateException("broken listener");
+            });
+            transport.addListener(data -> received.countDown());
+            assertTrue(transport.openPort());
+            try {
+                assertTrue(received.await(2, TimeUnit.SECONDS));
+            } finally {
+                transport.closePort();
+            }
+        }
+    }
+}
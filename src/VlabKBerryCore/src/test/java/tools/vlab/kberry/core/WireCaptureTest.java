@@ -0,0 +1,73 @@
+package tools.vlab.kberry.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WireCaptureTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCaptureRollsSegmentsAndReadsBackInOrder() throws Exception {
+        var file = dir.resolve("wire.kbw");
+        try (var capture = WireCapture.create(file, 128)) {
+            for (int i = 0; i < 20; i++) {
+                capture.received(new byte[]{0x68, (byte) i, 0x16});
+                capture.sent(new byte[]{(byte) 0xE5});
+            }
+        }
+        assertTrue(Files.exists(dir.resolve("wire.kbw.1")));
+
+        var records = WireCapture.read(file);
+        assertEquals(40, records.size());
+        for (int i = 0; i < 20; i++) {
+            var rx = records.get(i * 2);
+            assertEquals(WireCapture.Direction.RX, rx.direction());
+            assertArrayEquals(new byte[]{0x68, (byte) i, 0x16}, rx.frame());
+            assertEquals(WireCapture.Direction.TX, records.get(i * 2 + 1).direction());
+        }
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(records.get(i).nanos() >= records.get(i - 1).nanos());
+        }
+    }
+
+    @Test
+    void testFrameLargerThanASegmentIsSkipped() throws Exception {
+        var file = dir.resolve("wire.kbw");
+        try (var capture = WireCapture.create(file, 64)) {
+            capture.received(new byte[]{0x68, 0x01, 0x16});
+            capture.received(new byte[64]);
+            capture.sent(new byte[]{(byte) 0xE5});
+            assertEquals(2, capture.getRecords());
+        }
+        var records = WireCapture.read(file);
+        assertEquals(2, records.size());
+        assertArrayEquals(new byte[]{(byte) 0xE5}, records.get(1).frame());
+    }
+
+    @Test
+    void testReplayDeliversReceivedFramesOnly() throws Exception {
+        var file = dir.resolve("replay.kbw");
+        try (var capture = WireCapture.create(file)) {
+            capture.received(new byte[]{1, 2});
+            capture.sent(new byte[]{9});
+            capture.received(new byte[]{3});
+        }
+        var replay = ReplayTransport.maxSpeed(file);
+        var received = new ByteArrayOutputStream();
+        replay.addListener(received::writeBytes);
+        replay.openPort();
+
+        assertTrue(replay.awaitFinished(1, TimeUnit.SECONDS));
+        assertEquals(2, replay.getReplayedFrames());
+        assertArrayEquals(new byte[]{1, 2, 3}, received.toByteArray());
+    }
+}
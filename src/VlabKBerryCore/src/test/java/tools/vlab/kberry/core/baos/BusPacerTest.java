@@ -0,0 +1,77 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusPacerTest {
+
+    private final AtomicLong now = new AtomicLong(1);
+    private final BusPacer pacer = new BusPacer(10, 1, 40, 2, now::get);
+
+    private void advanceMs(long ms) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    @Test
+    void testTokenBucketSpacesCommandsByRate() {
+        assertEquals(0, pacer.readyInNanos());
+        assertEquals(0, pacer.reserve());
+        // 10/s → der nächste Token in 100ms
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(pacer.readyInNanos()));
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(pacer.reserve()));
+        advanceMs(1000);
+        // nach einer Pause höchstens der Burst ohne Warten
+        assertEquals(0, pacer.reserve());
+        assertEquals(0, pacer.reserve());
+        assertTrue(pacer.reserve() > 0);
+    }
+
+    @Test
+    void testBatchIsChargedOneTokenPerTelegram() {
+        advanceMs(1000);
+        assertEquals(2, pacer.availableTokens());
+        // ein Batch mit 2 Schreibaufträgen verbraucht den ganzen Burst
+        assertEquals(0, pacer.reserve(2));
+        assertEquals(0, pacer.availableTokens());
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(pacer.readyInNanos()));
+        advanceMs(100);
+        assertEquals(1, pacer.availableTokens());
+    }
+
+    @Test
+    void testQuietBusSpeedsUpAndTimeoutBacksOff() {
+        for (int i = 0; i < 20; i++) {
+            advanceMs(500);
+            pacer.reserve();
+            pacer.onResponse(TimeUnit.MILLISECONDS.toNanos(30));
+        }
+        assertEquals(20, pacer.getRate(), 0.001);
+        assertTrue(pacer.getBusLoad() < 0.5);
+
+        pacer.onTimeout();
+        assertEquals(10, pacer.getRate(), 0.001);
+    }
+
+    @Test
+    void testIndicationTrafficAndSlowResponsesRaiseLoad() {
+        pacer.onResponse(TimeUnit.MILLISECONDS.toNanos(30));
+        double rate = pacer.getRate();
+        // fremder Verkehr: 40 Indications pro Sekunde über 5 Sekunden
+        for (int i = 0; i < 200; i++) {
+            advanceMs(25);
+            pacer.onIndication();
+        }
+        assertTrue(pacer.getBusLoad() > 0.5, "load " + pacer.getBusLoad());
+        pacer.onResponse(TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(pacer.getRate() < rate + 0.5);
+
+        var quiet = new BusPacer(10, 1, 40, 2, now::get);
+        quiet.onResponse(TimeUnit.MILLISECONDS.toNanos(20));
+        for (int i = 0; i < 10; i++) quiet.onResponse(TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(quiet.getBusLoad() > 0.5, "load " + quiet.getBusLoad());
+    }
+}
@@ -0,0 +1,139 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+import tools.vlab.kberry.core.baos.messages.InvalidFormatException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FT12StreamParserTest {
+
+    private final List<byte[]> frames = new ArrayList<>();
+    private final FT12StreamParser.FrameHandler collect = (buffer, offset, length) ->
+            frames.add(Arrays.copyOfRange(buffer, offset, offset + length));
+
+    private static byte[] indication(int id, int value) {
+        byte[] payload = {(byte) 0xF0, (byte) 0xC1, 0x00, (byte) id, 0x00, 0x01, 0x00, (byte) id, 0x18, 0x01, (byte) value};
+        return FT12Frame.Data.response(payload, id % 2 == 0).toByteArray();
+    }
+
+    @Test
+    void testFragmentedFramesAndAcks() {
+        var stream = new ByteArrayOutputStream();
+        stream.write(0xE5);
+        stream.writeBytes(indication(1, 1));
+        stream.writeBytes(indication(2, 0));
+        byte[] bytes = stream.toByteArray();
+
+        var parser = new FT12StreamParser();
+        for (byte b : bytes) {
+            parser.feed(new byte[]{b}, collect);
+        }
+
+        assertEquals(3, frames.size());
+        assertArrayEquals(new byte[]{(byte) 0xE5}, frames.get(0));
+        assertArrayEquals(indication(1, 1), frames.get(1));
+        assertArrayEquals(indication(2, 0), frames.get(2));
+        assertEquals(2, parser.getFrames());
+        assertEquals(1, parser.getAcks());
+        assertEquals(0, parser.buffered());
+    }
+
+    @Test
+    void testResyncAfterGarbageAndChecksumError() {
+        byte[] broken = indication(3, 1);
+        broken[broken.length - 2] ^= 0x01;
+        var stream = new ByteArrayOutputStream();
+        stream.writeBytes(new byte[]{0x01, 0x02, 0x03});
+        stream.writeBytes(broken);
+        stream.writeBytes(indication(4, 1));
+
+        var parser = new FT12StreamParser();
+        parser.feed(stream.toByteArray(), collect);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(indication(4, 1), frames.get(0));
+        assertEquals(1, parser.getChecksumErrors());
+        assertEquals(1, parser.getResyncs());
+        assertEquals(3 + broken.length, parser.getDiscardedBytes());
+    }
+
+    @Test
+    void testFramesAcrossRingBoundaryAndLargeInput() {
+        var stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 200; i++) {
+            stream.writeBytes(indication(i, i & 1));
+        }
+        byte[] bytes = stream.toByteArray();
+
+        var parser = new FT12StreamParser(1024);
+        // mehr als die Ringgröße auf einmal, danach in ungeraden Stücken
+        parser.feed(bytes, 2000, collect);
+        for (int offset = 2000; offset < bytes.length; offset += 37) {
+            byte[] chunk = Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + 37));
+            parser.feed(chunk, collect);
+        }
+
+        assertEquals(200, frames.size());
+        for (int i = 0; i < 200; i++) {
+            assertArrayEquals(indication(i, i & 1), frames.get(i));
+        }
+        assertEquals(0, parser.getResyncs());
+    }
+
+    @Test
+    void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new FT12StreamParser(1000));
+        assertThrows(IllegalArgumentException.class, () -> new FT12StreamParser(256));
+    }
+
+    /**
+     * Checksum ok, but a control byte the decoder rejects.
+     */
+    private static byte[] badControl(int id) {
+        byte[] frame = indication(id, 1);
+        frame[4] = 0x73;
+        int sum = 0;
+        for (int i = 4; i < frame.length - 2; i++) sum += frame[i] & 0xFF;
+        frame[frame.length - 2] = (byte) sum;
+        return frame;
+    }
+
+    @Test
+    void testFrameIsConsumedEvenIfTheHandlerThrows() {
+        var parser = new FT12StreamParser();
+        FT12StreamParser.FrameHandler decode = (buffer, offset, length) -> {
+            FT12Frame.Data.of(buffer, offset, length);
+            collect.frame(buffer, offset, length);
+        };
+        assertThrows(InvalidFormatException.class, () -> parser.feed(badControl(5), decode));
+        parser.feed(indication(6, 1), decode);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(indication(6, 1), frames.get(0));
+        assertEquals(0, parser.buffered());
+    }
+
+    @Test
+    void testReaderDropsUndecodableFrameAndKeepsReceiving() {
+        var pair = LoopbackTransport.pair();
+        var reader = new BAOSReader(pair.host(), () -> {
+        });
+        var stream = new ByteArrayOutputStream();
+        stream.writeBytes(badControl(7));
+        stream.writeBytes(indication(8, 1));
+        reader.dataReceived(stream.toByteArray());
+        reader.dataReceived(indication(9, 0));
+
+        assertEquals(1, reader.getDecodeErrors());
+        assertEquals(8, reader.nextIndicator().orElseThrow().getId());
+        assertEquals(9, reader.nextIndicator().orElseThrow().getId());
+        assertTrue(reader.nextIndicator().isEmpty());
+    }
+}
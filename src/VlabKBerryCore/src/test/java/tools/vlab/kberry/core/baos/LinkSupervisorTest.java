@@ -0,0 +1,125 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.messages.os.GetServerItem;
+import tools.vlab.kberry.core.baos.messages.os.ServerItemId;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkSupervisorTest {
+
+    private static class FakeLink implements LinkSupervisor.Link {
+        final AtomicInteger relinks = new AtomicInteger();
+        final AtomicInteger resyncs = new AtomicInteger();
+        volatile int failingRelinks;
+
+        @Override
+        public boolean relink() {
+            return relinks.incrementAndGet() > failingRelinks;
+        }
+
+        @Override
+        public void probe() {
+        }
+
+        @Override
+        public long nanosSinceLastFrame() {
+            return 0;
+        }
+
+        @Override
+        public void resync() {
+            resyncs.incrementAndGet();
+        }
+    }
+
+    @Test
+    void testReconnectsWithBackoffAndResyncs() throws Exception {
+        var link = new FakeLink();
+        link.failingRelinks = 3;
+        var supervisor = new LinkSupervisor(link);
+        supervisor.setCheckInterval(Duration.ofMillis(10));
+        supervisor.setBackoffBase(Duration.ofMillis(20));
+        supervisor.start();
+        try {
+            supervisor.onTimeout();
+            supervisor.onTimeout();
+            supervisor.onResponse();
+            supervisor.onTimeout();
+            Thread.sleep(100);
+            // eine Antwort dazwischen setzt die Folge zurück
+            assertEquals(0, link.relinks.get());
+
+            supervisor.onTimeout();
+            supervisor.onTimeout();
+            waitUntil(() -> supervisor.stats().reconnects() == 1);
+            var stats = supervisor.stats();
+            assertEquals(LinkSupervisor.State.CONNECTED, stats.state());
+            assertEquals(4, link.relinks.get());
+            assertEquals(3, stats.failedAttempts());
+            assertEquals(1, link.resyncs.get());
+            // 10..20 + 20..40 + 40..80ms Backoff
+            assertTrue(stats.lastRecoveryMs() >= 70, "recovery " + stats.lastRecoveryMs());
+        } finally {
+            supervisor.stop();
+        }
+    }
+
+    @Test
+    void testModuleResetAndBusReturnTriggerResync() throws Exception {
+        var link = new FakeLink();
+        var supervisor = new LinkSupervisor(link);
+        supervisor.setCheckInterval(Duration.ofMillis(10));
+        supervisor.start();
+        try {
+            supervisor.onServerItem(item(ServerItemId.TIME_SINCE_RESET, 0, 0, 0x10, 0));
+            supervisor.onServerItem(item(ServerItemId.TIME_SINCE_RESET, 0, 0, 0x20, 0));
+            Thread.sleep(50);
+            assertEquals(0, link.resyncs.get());
+
+            supervisor.onServerItem(item(ServerItemId.TIME_SINCE_RESET, 0, 0, 0, 0x05));
+            waitUntil(() -> link.resyncs.get() == 1);
+            assertEquals(1, supervisor.stats().moduleResets());
+
+            supervisor.onServerItem(item(ServerItemId.BUS_CONNECTION_STATE, 0));
+            assertEquals(LinkSupervisor.State.BUS_LOST, supervisor.getState());
+            supervisor.onServerItem(item(ServerItemId.BUS_CONNECTION_STATE, 1));
+            waitUntil(() -> link.resyncs.get() == 2);
+            assertEquals(LinkSupervisor.State.CONNECTED, supervisor.getState());
+            assertEquals(0, link.relinks.get());
+        } finally {
+            supervisor.stop();
+        }
+    }
+
+    @Test
+    void testBackoffIsCappedAndJittered() {
+        var supervisor = new LinkSupervisor(new FakeLink());
+        supervisor.setBackoffBase(Duration.ofMillis(100));
+        supervisor.setBackoffMax(Duration.ofSeconds(1));
+        for (int i = 0; i < 100; i++) {
+            long first = supervisor.backoff(1);
+            assertTrue(first >= 50_000_000L && first <= 100_000_000L);
+            long capped = supervisor.backoff(40);
+            assertTrue(capped >= 500_000_000L && capped <= 1_000_000_000L);
+        }
+    }
+
+    private static GetServerItem.Response.ServerItem item(ServerItemId id, int... data) {
+        var bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++) bytes[i] = (byte) data[i];
+        return new GetServerItem.Response.ServerItem(id, bytes);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) fail("Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
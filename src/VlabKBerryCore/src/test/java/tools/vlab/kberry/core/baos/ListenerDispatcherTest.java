@@ -0,0 +1,75 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListenerDispatcherTest {
+
+    @Test
+    void testUpdatesOfOneKeyStayInOrderWhileKeysRunInParallel() throws Exception {
+        var dispatcher = new ListenerDispatcher(1000);
+        var slow = Collections.synchronizedList(new ArrayList<Integer>());
+        var fast = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            dispatcher.post(1, () -> {
+                if (value == 0) await(release);
+                slow.add(value);
+            });
+        }
+        // Schlüssel 2 wartet nicht auf den blockierten Schlüssel 1
+        dispatcher.post(2, fast::countDown);
+        assertTrue(fast.await(1, TimeUnit.SECONDS));
+        release.countDown();
+
+        waitUntil(() -> slow.size() == 100);
+        for (int i = 0; i < 100; i++) assertEquals(i, slow.get(i));
+        assertEquals(100, dispatcher.stats(1).dispatched());
+        assertEquals(101, dispatcher.stats().dispatched());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testConflationAndBoundedMailbox() throws Exception {
+        var dispatcher = new ListenerDispatcher(3);
+        var release = new CountDownLatch(1);
+        var received = Collections.synchronizedList(new ArrayList<String>());
+        dispatcher.post(1, () -> await(release));
+        waitUntil(() -> dispatcher.stats(1).dispatched() == 1);
+        for (String value : List.of("a", "b", "c", "d", "e")) dispatcher.post(1, () -> received.add(value));
+        assertEquals(3, dispatcher.stats(1).depth());
+        assertEquals(2, dispatcher.stats(1).dropped());
+
+        dispatcher.setConflate(true);
+        dispatcher.post(1, () -> received.add("f"));
+        assertEquals(1, dispatcher.stats(1).conflated());
+        release.countDown();
+
+        waitUntil(() -> received.size() == 3);
+        assertEquals(List.of("c", "d", "f"), received);
+        dispatcher.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,360 @@
+package tools.vlab.kberry.core.baos;
+
+import tools.vlab.kberry.core.SerialPortListener;
+import tools.vlab.kberry.core.Transport;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal BAOS object server on the device end of a {@link Transport}, for tests and benchmarks.
+ * <p>
+ * ACKs every reset and data frame and answers GetServerItem, GetDatapointValue and SetDatapointValue
+ * from an in-memory value table. Responses are sent after an optional processing delay, in request order.
+ */
+public class ObjectServerSimulator implements SerialPortListener {
+
+    private final Transport transport;
+    private final Duration responseDelay;
+    private final ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "os-simulator");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Integer, byte[]> values = new ConcurrentHashMap<>();
+    private final Set<Integer> readOnly = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Duration> inProgress = new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final AtomicBoolean odd = new AtomicBoolean(true);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger setCommands = new AtomicInteger();
+    private final AtomicInteger dropResponses = new AtomicInteger();
+    private volatile boolean silent = false;
+    private volatile int maxItemsPerResponse = Integer.MAX_VALUE;
+    private volatile long timeSinceReset = 16;
+    private final Map<Integer, byte[]> descriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger descriptionRequests = new AtomicInteger();
+    private volatile Duration startupDelay = Duration.ZERO;
+    private volatile long readyAtNanos = 0;
+
+    public ObjectServerSimulator(Transport transport) {
+        this(transport, Duration.ZERO);
+    }
+
+    public ObjectServerSimulator(Transport transport, Duration responseDelay) {
+        this.transport = transport;
+        this.responseDelay = responseDelay;
+        transport.addListener(this);
+        transport.openPort();
+    }
+
+    /**
+     * SetDatapointValue requests containing the datapoint are answered with BAD_ID.
+     */
+    public void readOnly(int id) {
+        readOnly.add(id);
+    }
+
+    /**
+     * Single datapoint reads are answered with IN_PROGRESS first, the value follows as a second response
+     * after the given time (the module still reading the value from the bus).
+     */
+    public void inProgress(int id, Duration followUp) {
+        inProgress.put(id, followUp);
+    }
+
+    /**
+     * Datapoint description as ETS configured it: value type, config flags, DPT.
+     */
+    public void describe(int id, int valueType, int flags, int dpt) {
+        descriptions.put(id, new byte[]{(byte) valueType, (byte) flags, (byte) dpt});
+    }
+
+    /**
+     * Number of GetDatapointDescription requests received.
+     */
+    public int descriptionRequests() {
+        return descriptionRequests.get();
+    }
+
+    public void define(int id, byte[] value) {
+        values.put(id, value);
+    }
+
+    public byte[] value(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * Number of data frames (requests) received.
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    /**
+     * Number of datapoint commands received via SetDatapointValue.
+     */
+    public int setCommands() {
+        return setCommands.get();
+    }
+
+    /**
+     * The responses to the next requests get lost: the frames are acknowledged and handled, but not answered.
+     */
+    public void dropResponses(int count) {
+        dropResponses.set(count);
+    }
+
+    /**
+     * While silent, frames are neither acknowledged nor answered (simulates a stalled module).
+     */
+    public void setSilent(boolean silent) {
+        this.silent = silent;
+    }
+
+    /**
+     * After a link reset, data frames are ignored for this long (the module still starting up).
+     */
+    public void setStartupDelay(Duration startupDelay) {
+        this.startupDelay = startupDelay;
+    }
+
+    /**
+     * Value of server item 9 (TIME_SINCE_RESET), a smaller value than before looks like a module reset.
+     */
+    public void setTimeSinceReset(long timeSinceReset) {
+        this.timeSinceReset = timeSinceReset;
+    }
+
+    /**
+     * Limits the datapoints per GetDatapointValue response, like the module's buffer size does.
+     */
+    public void setMaxItemsPerResponse(int maxItemsPerResponse) {
+        this.maxItemsPerResponse = maxItemsPerResponse;
+    }
+
+    /**
+     * Sends a DP_VALUE_IND for the given datapoints and stores their values.
+     */
+    public void indicate(DataPoint... dataPoints) {
+        var out = new ByteArrayOutputStream();
+        out.write(0xF0);
+        out.write(0xC1);
+        writeShort(out, dataPoints[0].getId());
+        writeShort(out, dataPoints.length);
+        for (DataPoint dp : dataPoints) {
+            values.put(dp.getId(), dp.payload());
+            writeShort(out, dp.getId());
+            out.write(0x18);
+            out.write(dp.payload().length);
+            out.writeBytes(dp.payload());
+        }
+        sendData(out.toByteArray());
+    }
+
+    /**
+     * Sends a SERVER_ITEM_IND with a single item.
+     */
+    public void indicateServerItem(int id, byte[] data) {
+        var out = new ByteArrayOutputStream();
+        out.write(0xF0);
+        out.write(0xC2);
+        writeShort(out, id);
+        writeShort(out, 1);
+        writeShort(out, id);
+        out.write(data.length);
+        out.writeBytes(data);
+        sendData(out.toByteArray());
+    }
+
+    public void shutdown() {
+        transport.removeListener(this);
+        responder.shutdownNow();
+        transport.closePort();
+    }
+
+    @Override
+    public void dataReceived(byte[] data) {
+        dataReceived(data, data.length);
+    }
+
+    @Override
+    public synchronized void dataReceived(byte[] data, int length) {
+        pending.write(data, 0, length);
+        byte[] buf = pending.toByteArray();
+        int i = 0;
+        while (i < buf.length) {
+            int b = buf[i] & 0xFF;
+            if (b == 0xE5) {
+                i++;
+            } else if (b == 0x10) {
+                if (i + 4 > buf.length) break;
+                if ((buf[i + 1] & 0xFF) == 0x40) readyAtNanos = System.nanoTime() + startupDelay.toNanos();
+                i += 4;
+                if (!silent) transport.writeBytes(new byte[]{(byte) 0xE5});
+            } else if (b == 0x68) {
+                if (i + 4 > buf.length) break;
+                int frameLength = (buf[i + 1] & 0xFF) + 6;
+                if (i + frameLength > buf.length) break;
+                byte[] payload = Arrays.copyOfRange(buf, i + 5, i + frameLength - 2);
+                i += frameLength;
+                if (!silent && System.nanoTime() >= readyAtNanos) {
+                    transport.writeBytes(new byte[]{(byte) 0xE5});
+                    requests.incrementAndGet();
+                    handle(payload);
+                }
+            } else {
+                i++;
+            }
+        }
+        pending.reset();
+        pending.write(buf, i, buf.length - i);
+    }
+
+    private void handle(byte[] request) {
+        int subService = request[1] & 0xFF;
+        int start = uInt16(request, 2);
+        int count = uInt16(request, 4);
+        byte[] response = switch (subService) {
+            case 0x01 -> getServerItem(start, count);
+            case 0x03 -> getDatapointDescription(start, count);
+            case 0x05 -> getDatapointValue(start, count, count == 1 && inProgress.containsKey(start));
+            case 0x06 -> setDatapointValue(request, start, count);
+            default -> error(subService | 0x80, start, 0x05);
+        };
+        if (dropResponses.getAndUpdate(left -> Math.max(0, left - 1)) > 0) return;
+        if (responseDelay.isZero()) {
+            responder.execute(() -> sendData(response));
+        } else {
+            responder.schedule(() -> sendData(response), responseDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        var followUp = subService == 0x05 && count == 1 ? inProgress.get(start) : null;
+        if (followUp != null) {
+            byte[] value = getDatapointValue(start, 1, false);
+            responder.schedule(() -> sendData(value), responseDelay.plus(followUp).toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private byte[] getServerItem(int start, int count) {
+        var out = new ByteArrayOutputStream();
+        out.write(0xF0);
+        out.write(0x81);
+        writeShort(out, start);
+        writeShort(out, count);
+        for (int id = start; id < start + count; id++) {
+            byte[] data = switch (id) {
+                case 1 -> new byte[]{0x00, 0x00, (byte) 0xC5, 0x08, 0x00, 0x03};
+                case 2, 3 -> new byte[]{0x20};
+                case 4, 5 -> new byte[]{0x00, (byte) 0xC5};
+                case 6 -> new byte[]{0x00, 0x07};
+                case 7 -> new byte[]{0x20};
+                case 8 -> new byte[]{0x00, (byte) 0xC5, 0x01, 0x02, 0x03, 0x04};
+                case 9 -> new byte[]{(byte) (timeSinceReset >> 24), (byte) (timeSinceReset >> 16), (byte) (timeSinceReset >> 8), (byte) timeSinceReset};
+                default -> new byte[]{0x01};
+            };
+            writeShort(out, id);
+            out.write(data.length);
+            out.writeBytes(data);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] getDatapointDescription(int start, int count) {
+        descriptionRequests.incrementAndGet();
+        var body = new ByteArrayOutputStream();
+        int items = 0;
+        for (int id = start; id < start + count && items < maxItemsPerResponse; id++) {
+            byte[] description = descriptions.get(id);
+            if (description == null) continue;
+            writeShort(body, id);
+            body.writeBytes(description);
+            items++;
+        }
+        if (items == 0) {
+            return error(0x83, start, 0x02);
+        }
+        var out = new ByteArrayOutputStream();
+        out.write(0xF0);
+        out.write(0x83);
+        writeShort(out, start);
+        writeShort(out, items);
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private byte[] getDatapointValue(int start, int count, boolean progress) {
+        var out = new ByteArrayOutputStream();
+        int items = 0;
+        var body = new ByteArrayOutputStream();
+        for (int id = start; id < start + count && items < maxItemsPerResponse; id++) {
+            byte[] value = values.get(id);
+            if (value == null) continue;
+            writeShort(body, id);
+            body.write(progress ? 0x12 : 0x10);
+            body.write(value.length);
+            body.writeBytes(value);
+            items++;
+        }
+        if (items == 0) {
+            return error(0x85, start, 0x02);
+        }
+        out.write(0xF0);
+        out.write(0x85);
+        writeShort(out, start);
+        writeShort(out, items);
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private byte[] setDatapointValue(byte[] request, int start, int count) {
+        int index = 6;
+        int errorCode = 0x00;
+        for (int i = 0; i < count; i++) {
+            int id = uInt16(request, index);
+            int cmd = request[index + 2] & 0xFF;
+            int length = request[index + 3] & 0xFF;
+            byte[] value = Arrays.copyOfRange(request, index + 4, index + 4 + length);
+            index += 4 + length;
+            setCommands.incrementAndGet();
+            if (readOnly.contains(id)) {
+                errorCode = 0x07;
+            } else if (cmd == 0x00 || cmd == 0x03) {
+                values.put(id, value);
+            }
+        }
+        return error(0x86, start, errorCode);
+    }
+
+    private static byte[] error(int subService, int start, int errorCode) {
+        return new byte[]{(byte) 0xF0, (byte) subService, (byte) (start >> 8), (byte) start, 0x00, 0x00, (byte) errorCode};
+    }
+
+    private void sendData(byte[] payload) {
+        synchronized (odd) {
+            boolean isOdd = odd.get();
+            odd.set(!isOdd);
+            transport.writeBytes(FT12Frame.Data.response(payload, isOdd).toByteArray());
+        }
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static int uInt16(byte[] data, int index) {
+        return ((data[index] & 0xFF) << 8) | (data[index + 1] & 0xFF);
+    }
+}
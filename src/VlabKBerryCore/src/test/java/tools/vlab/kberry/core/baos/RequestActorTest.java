@@ -0,0 +1,165 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestActorTest {
+
+    private static final RequestActor.WriteLane NO_WRITES = new RequestActor.WriteLane() {
+        @Override
+        public RequestActor.Task poll() {
+            return null;
+        }
+
+        @Override
+        public long readyInNanos() {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    @Test
+    void testBusyKeyDoesNotHoldBackOtherRequests() throws Exception {
+        var window = new RequestWindow(2);
+        var actor = new RequestActor(NO_WRITES, () -> window, Executors.newVirtualThreadPerTaskExecutor());
+        actor.start();
+        try {
+            var slow = new CountDownLatch(1);
+            var order = new CopyOnWriteArrayList<String>();
+            var first = actor.submit(1, () -> {
+                slow.await();
+                order.add("1a");
+                return null;
+            });
+            var second = actor.submit(1, () -> order.add("1b"));
+            var other = actor.submit(2, () -> order.add("2"));
+
+            // Key 1 hängt, Key 2 läuft trotzdem
+            other.get(1, TimeUnit.SECONDS);
+            assertFalse(second.isDone());
+
+            slow.countDown();
+            first.get(1, TimeUnit.SECONDS);
+            second.get(1, TimeUnit.SECONDS);
+            assertEquals(List.of("2", "1a", "1b"), order);
+        } finally {
+            actor.stop();
+        }
+    }
+
+    @Test
+    void testFailingWriteDoesNotStopTheOwner() throws Exception {
+        var failures = new AtomicInteger();
+        var pending = new AtomicInteger();
+        var lane = new RequestActor.WriteLane() {
+            @Override
+            public RequestActor.Task poll() {
+                return pending.getAndSet(0) > 0 ? new RequestActor.Task(1, false, () -> {
+                    failures.incrementAndGet();
+                    throw new IllegalStateException("broken write");
+                }) : null;
+            }
+
+            @Override
+            public long readyInNanos() {
+                return pending.get() > 0 ? 0 : Long.MAX_VALUE;
+            }
+        };
+        for (int size : new int[]{1, 2}) {
+            failures.set(0);
+            pending.set(1);
+            var window = new RequestWindow(size);
+            var actor = new RequestActor(lane, () -> window, Executors.newVirtualThreadPerTaskExecutor());
+            actor.start();
+            try {
+                actor.wake();
+                // der Owner läuft nach dem Fehler weiter und bedient die nächste Anfrage
+                assertEquals("ok", actor.submit(2, () -> "ok").get(1, TimeUnit.SECONDS));
+                var failed = actor.submit(3, () -> {
+                    throw new IllegalArgumentException("broken read");
+                });
+                assertInstanceOf(IllegalArgumentException.class,
+                        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS)).getCause());
+                assertEquals("still", actor.submit(3, () -> "still").get(1, TimeUnit.SECONDS));
+                assertEquals(1, failures.get());
+            } finally {
+                actor.stop();
+            }
+        }
+    }
+
+    @Test
+    void testCallGivesUpAfterTheCallTimeout() throws Exception {
+        var window = new RequestWindow(1);
+        var actor = new RequestActor(NO_WRITES, () -> window, Executors.newVirtualThreadPerTaskExecutor(), Duration.ofMillis(100));
+        actor.start();
+        try {
+            var release = new CountDownLatch(1);
+            var blocking = actor.submit(1, () -> {
+                release.await();
+                return null;
+            });
+            var ran = new AtomicInteger();
+            // das Exchange kommt nicht dran, call() wartet nicht endlos
+            assertThrows(TimeoutException.class, () -> actor.call(2, ran::incrementAndGet));
+            release.countDown();
+            blocking.get(1, TimeUnit.SECONDS);
+            assertEquals("next", actor.call(2, () -> "next"));
+            // das aufgegebene Exchange wurde nicht mehr gesendet
+            assertEquals(0, ran.get());
+        } finally {
+            actor.stop();
+        }
+    }
+
+    @Test
+    void testStopFailsDeferredWritesInsteadOfSendingThem() throws Exception {
+        var pending = new AtomicInteger(0);
+        var sent = new AtomicInteger();
+        var failed = new CompletableFuture<Exception>();
+        var lane = new RequestActor.WriteLane() {
+            @Override
+            public RequestActor.Task poll() {
+                return pending.getAndSet(0) > 0 ? new RequestActor.Task(1, false, sent::incrementAndGet, failed::complete) : null;
+            }
+
+            @Override
+            public long readyInNanos() {
+                return pending.get() > 0 ? 0 : Long.MAX_VALUE;
+            }
+        };
+        var window = new RequestWindow(2);
+        var actor = new RequestActor(lane, () -> window, Executors.newVirtualThreadPerTaskExecutor());
+        actor.start();
+        var release = new CountDownLatch(1);
+        var slow = actor.submit(1, () -> {
+            release.await();
+            return null;
+        });
+        try {
+            // Key 1 ist belegt, der Write wird zurückgestellt
+            while (!window.isBusy(1)) Thread.sleep(5);
+            pending.set(1);
+            actor.wake();
+            while (pending.get() > 0) Thread.sleep(5);
+            actor.stop();
+            assertInstanceOf(IllegalStateException.class, failed.get(1, TimeUnit.SECONDS));
+            assertEquals(0, sent.get());
+            var late = actor.submit(2, () -> "late");
+            assertThrows(ExecutionException.class, () -> late.get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            slow.get(1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestWindowTest {
+
+    @Test
+    void testWindowLimitsRequestsAndSerializesSameKey() throws Exception {
+        var window = new RequestWindow(2);
+        window.acquire(RequestWindow.dataPoint(1));
+        window.acquire(RequestWindow.serverItem(1));
+        assertEquals(2, window.inFlight());
+
+        var acquired = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                window.acquire(RequestWindow.dataPoint(1));
+                acquired.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        window.release(RequestWindow.serverItem(1));
+        // Slot frei, aber gleicher Datenpunkt noch in Arbeit
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        window.release(RequestWindow.dataPoint(1));
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        assertEquals(1, window.inFlight());
+    }
+
+    @Test
+    void testExclusiveWaitsForRequestsInFlight() throws Exception {
+        var window = new RequestWindow(4);
+        window.acquire(7);
+
+        var exclusive = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                window.acquireExclusive();
+                exclusive.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertFalse(exclusive.await(100, TimeUnit.MILLISECONDS));
+
+        window.release(7);
+        assertTrue(exclusive.await(1, TimeUnit.SECONDS));
+        window.releaseExclusive();
+        window.acquire(8);
+        assertEquals(1, window.inFlight());
+    }
+
+    @Test
+    void testTryAcquireReturnsWhileKeyIsBusy() throws Exception {
+        var window = new RequestWindow(2);
+        assertTrue(window.tryAcquire(RequestWindow.dataPoint(3)));
+        assertTrue(window.isBusy(RequestWindow.dataPoint(3)));
+        assertFalse(window.tryAcquire(RequestWindow.dataPoint(3)));
+        assertEquals(1, window.inFlight());
+
+        window.release(RequestWindow.dataPoint(3));
+        assertFalse(window.isBusy(RequestWindow.dataPoint(3)));
+        assertTrue(window.tryAcquire(RequestWindow.dataPoint(3)));
+    }
+}
@@ -0,0 +1,94 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseTableTest {
+
+    private static FT12Frame.Data response(int id) {
+        return FT12Frame.Data.response(new byte[]{(byte) 0xF0, (byte) 0x85, 0x00, (byte) id, 0x00, 0x00, 0x00}, true);
+    }
+
+    @Test
+    void testWaitingRequestIsCompletedAndRemoved() throws Exception {
+        var table = new ResponseTable(1000);
+        int key = ResponseTable.key(0x85, 7);
+        var future = table.register(key, 100);
+        var data = response(7);
+
+        table.complete(key, data);
+
+        assertSame(data, future.get());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testUnsolicitedResponseIsParkedForNextRequest() throws Exception {
+        var table = new ResponseTable(1000);
+        int key = ResponseTable.key(0x85, 7);
+        var data = response(7);
+
+        table.complete(key, data);
+        assertEquals(1, table.size());
+
+        assertSame(data, table.register(key, 100).get());
+        assertEquals(0, table.size());
+        assertEquals(0, table.getOrphaned());
+    }
+
+    @Test
+    void testLateAndOrphanedResponsesAreCounted() throws Exception {
+        var table = new ResponseTable(0);
+        int late = ResponseTable.key(0x85, 1);
+        int orphan = ResponseTable.key(0x86, 1);
+
+        var future = table.register(late, 0);
+        table.release(late, future, true);
+        table.complete(late, response(1));
+        assertEquals(1, table.getLate());
+
+        table.complete(orphan, response(1));
+        Thread.sleep(1);
+        table.expire();
+        assertEquals(1, table.getOrphaned());
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testExpiredWaitingRequestFails() throws Exception {
+        var table = new ResponseTable(0);
+        var future = table.register(ResponseTable.key(0x81, 1), 0);
+        Thread.sleep(1);
+        table.expire();
+
+        var e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(1, table.getExpired());
+    }
+
+    @Test
+    void testManyKeysSurviveGrowAndRemoval() throws Exception {
+        var table = new ResponseTable(1000);
+        var futures = new ArrayList<CompletableFuture<FT12Frame.Data>>();
+        for (int id = 0; id < 500; id++) {
+            futures.add(table.register(ResponseTable.key(0x85, id), 100));
+        }
+        for (int id = 0; id < 500; id += 2) {
+            table.complete(ResponseTable.key(0x85, id), response(id));
+        }
+        for (int id = 1; id < 500; id += 2) {
+            table.complete(ResponseTable.key(0x85, id), response(id));
+        }
+        for (int id = 0; id < 500; id++) {
+            assertEquals(id & 0xFF, futures.get(id).get().getId() & 0xFF);
+        }
+        assertEquals(0, table.size());
+        assertEquals(0, table.getOrphaned());
+    }
+}
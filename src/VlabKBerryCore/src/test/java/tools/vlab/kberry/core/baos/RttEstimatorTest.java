@@ -0,0 +1,70 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RttEstimatorTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void testTimeoutFollowsMeasuredRoundTripsWithinBounds() {
+        var estimator = new RttEstimator(5000, 50, 5000);
+        assertEquals(5000, estimator.timeoutMs());
+
+        // erste Messung: srtt = 20ms, rttvar = 10ms
+        estimator.onResponse(20 * MS);
+        assertEquals(60, estimator.timeoutMs());
+        for (int i = 0; i < 50; i++) estimator.onResponse(20 * MS);
+        // ohne Streuung gilt die Untergrenze
+        assertEquals(50, estimator.timeoutMs());
+        assertEquals(20, estimator.stats().srttMs(), 0.01);
+
+        // Ausreißer vergrößern die Streuung und damit den Timeout
+        estimator.onResponse(200 * MS);
+        assertTrue(estimator.timeoutMs() > 200, "timeout " + estimator.timeoutMs());
+
+        estimator.setBounds(Duration.ofMillis(10), Duration.ofMillis(100));
+        assertEquals(100, estimator.timeoutMs());
+        assertThrows(IllegalArgumentException.class, () -> estimator.setBounds(Duration.ofSeconds(2), Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testTimeoutsBackOffUntilTheNextResponse() {
+        var estimator = new RttEstimator(1000, 100, 1000);
+        for (int i = 0; i < 20; i++) estimator.onResponse(10 * MS);
+        assertEquals(100, estimator.timeoutMs());
+
+        estimator.onTimeout();
+        assertEquals(200, estimator.timeoutMs());
+        estimator.onTimeout();
+        estimator.onTimeout();
+        estimator.onTimeout();
+        assertEquals(1000, estimator.timeoutMs());
+        assertEquals(4, estimator.stats().timeouts());
+
+        estimator.onResponse(10 * MS);
+        assertEquals(100, estimator.timeoutMs());
+    }
+
+    @Test
+    void testHistogramAndPercentiles() {
+        var estimator = new RttEstimator(1000, 10, 1000);
+        assertEquals(0, estimator.stats().percentileMs(0.99));
+        for (int i = 0; i < 98; i++) estimator.onResponse(3 * MS);
+        estimator.onResponse(30 * MS);
+        estimator.onResponse(700 * MS);
+
+        var stats = estimator.stats();
+        assertEquals(100, stats.samples());
+        assertEquals(98, stats.histogram()[2]);
+        assertEquals(5, stats.percentileMs(0.5));
+        assertEquals(50, stats.percentileMs(0.99));
+        assertEquals(1000, stats.percentileMs(1.0));
+        assertEquals(700, stats.maxMs(), 0.01);
+    }
+}
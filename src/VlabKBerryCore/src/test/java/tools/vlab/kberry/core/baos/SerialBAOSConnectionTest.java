@@ -0,0 +1,403 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.Error;
+import tools.vlab.kberry.core.baos.messages.os.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialBAOSConnectionTest {
+
+    @Test
+    void testBulkReadFollowsUpPartialResponses() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        IntStream.rangeClosed(1, 30).forEach(id -> simulator.define(id, new byte[]{(byte) id}));
+        IntStream.rangeClosed(40, 45).forEach(id -> simulator.define(id, new byte[]{(byte) id}));
+        // Modul liefert höchstens 8 Datenpunkte pro Antwort
+        simulator.setMaxItemsPerResponse(8);
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.connect();
+        try {
+            var ids = new ArrayList<DataPointId>();
+            IntStream.rangeClosed(1, 30).forEach(id -> ids.add(DataPointId.id(id)));
+            IntStream.rangeClosed(40, 47).forEach(id -> ids.add(DataPointId.id(id)));
+            int before = simulator.requests();
+
+            var dataPoints = connection.readAll(ids);
+
+            // 1..30 in 4 Frames, 40..45 in einem, die Nachfrage nach 46..47 findet nichts
+            assertEquals(6, simulator.requests() - before);
+            assertEquals(36, dataPoints.size());
+            assertTrue(dataPoints.stream().allMatch(DataPoint::isAvailable));
+            assertEquals(45, dataPoints.getLast().id().id());
+            assertArrayEquals(new byte[]{17}, dataPoints.get(16).payload());
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncCommandsCompleteWithTypedFailures() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(1, new byte[]{0x01});
+        simulator.define(2, new byte[]{0x00});
+        simulator.readOnly(2);
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setWriteBatchSize(1);
+        connection.configureQueue(TrafficClass.AUTOMATION, 1, TransmitScheduler.OverflowPolicy.REJECT);
+        connection.connect();
+        try {
+            connection.writeAsync(DataPoint.bool(DataPointId.id(1), false), TrafficClass.AUTOMATION, null).get(5, TimeUnit.SECONDS);
+            assertArrayEquals(new byte[]{0x00}, connection.readAsync(DataPointId.id(1)).get(5, TimeUnit.SECONDS).payload());
+
+            var rejected = connection.writeAsync(DataPoint.bool(DataPointId.id(2), true), TrafficClass.AUTOMATION, null);
+            var failure = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+            assertEquals(Error.BAD_ID, assertInstanceOf(BAOSRejectedException.class, failure.getCause()).getError());
+
+            // Modul antwortet nicht: der erste Auftrag hängt im Versand, der zweite füllt die Queue
+            simulator.setSilent(true);
+            connection.writeAsync(DataPoint.bool(DataPointId.id(1), true), TrafficClass.AUTOMATION, null);
+            Thread.sleep(200);
+            connection.writeAsync(DataPoint.bool(DataPointId.id(1), false), TrafficClass.AUTOMATION, null);
+            var full = connection.writeAsync(DataPoint.bool(DataPointId.id(1), true), TrafficClass.AUTOMATION, null);
+            failure = assertThrows(ExecutionException.class, () -> full.get(1, TimeUnit.SECONDS));
+            assertTrue(assertInstanceOf(BAOSQueueException.class, failure.getCause()).isQueueFull());
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testEveryValueSubscriberGetsIndicationsUntilUnsubscribed() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(5, new byte[]{0x00});
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.connect();
+        try {
+            var first = new LinkedBlockingQueue<DataPoint>();
+            var second = new LinkedBlockingQueue<DataPoint>();
+            var subscription = connection.onValueChanged(DataPointId.id(5), first::add);
+            connection.onValueChanged(DataPointId.id(5), second::add);
+
+            simulator.indicate(DataPoint.bool(DataPointId.id(5), true));
+            assertNotNull(first.poll(2, TimeUnit.SECONDS));
+            assertNotNull(second.poll(2, TimeUnit.SECONDS));
+
+            subscription.unsubscribe();
+            simulator.indicate(DataPoint.bool(DataPointId.id(5), false));
+            assertArrayEquals(new byte[]{0x00}, second.poll(2, TimeUnit.SECONDS).payload());
+            assertTrue(first.isEmpty());
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testMirrorAnswersReadsAndSuppressesRepeatedIndications() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(7, new byte[]{0x00});
+        simulator.define(8, new byte[]{0x10});
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setMirrorMaxAge(Duration.ofMinutes(1));
+        connection.setSuppressUnchanged(true);
+        connection.connect();
+        try {
+            var received = new LinkedBlockingQueue<DataPoint>();
+            connection.onValueChanged(DataPointId.id(7), received::add);
+            simulator.indicate(DataPoint.bool(DataPointId.id(7), true));
+            simulator.indicate(DataPoint.bool(DataPointId.id(7), true));
+            simulator.indicate(DataPoint.bool(DataPointId.id(7), false));
+            assertArrayEquals(new byte[]{0x01}, received.poll(2, TimeUnit.SECONDS).payload());
+            assertArrayEquals(new byte[]{0x00}, received.poll(2, TimeUnit.SECONDS).payload());
+            assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(1, connection.getMirror().stats().unchanged());
+
+            // Indication und eigener Schreibauftrag füllen den Spiegel, gelesen wird ohne Anfrage
+            connection.write(DataPoint.uInt8(DataPointId.id(8), 0x20), false).get(5, TimeUnit.SECONDS);
+            int before = simulator.requests();
+            assertArrayEquals(new byte[]{0x00}, connection.read(DataPointId.id(7)).payload());
+            assertArrayEquals(new byte[]{0x20}, connection.read(DataPointId.id(8)).payload());
+            assertEquals(before, simulator.requests());
+            assertEquals(2, connection.getMirror().stats().hits());
+
+            connection.reset(DataPointId.id(8));
+            assertArrayEquals(new byte[]{0x20}, connection.read(DataPointId.id(8)).payload());
+            assertTrue(simulator.requests() > before);
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testSupervisorReconnectsStalledLinkAndResyncsSubscribedValues() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(3, new byte[]{0x00});
+        var connection = new SerialBAOSConnection(pair.host(), 200, 3);
+        var supervisor = connection.getSupervisor();
+        supervisor.setProbeInterval(Duration.ofMillis(300));
+        supervisor.setBackoffBase(Duration.ofMillis(100));
+        connection.setSupervision(true);
+        connection.connect();
+        try {
+            var received = new LinkedBlockingQueue<DataPoint>();
+            connection.onValueChanged(DataPointId.id(3), received::add);
+            assertArrayEquals(new byte[]{0x00}, connection.read(DataPointId.id(3)).payload());
+
+            // Modul hängt, der Wert ändert sich unbemerkt
+            simulator.setSilent(true);
+            simulator.define(3, new byte[]{0x01});
+            long deadline = System.currentTimeMillis() + 5000;
+            while (supervisor.getState() != LinkSupervisor.State.RECONNECTING) {
+                assertTrue(System.currentTimeMillis() < deadline, "link loss not detected");
+                Thread.sleep(20);
+            }
+            Thread.sleep(500);
+            simulator.setSilent(false);
+
+            assertArrayEquals(new byte[]{0x01}, received.poll(10, TimeUnit.SECONDS).payload());
+            var stats = supervisor.stats();
+            assertEquals(LinkSupervisor.State.CONNECTED, stats.state());
+            assertEquals(1, stats.reconnects());
+            assertTrue(stats.failedAttempts() >= 1);
+            assertTrue(stats.lastRecoveryMs() >= 500);
+            connection.write(DataPoint.bool(DataPointId.id(3), false), false).get(5, TimeUnit.SECONDS);
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testConnectWaitsForModuleReadinessInsteadOfFixedSleep() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(1, new byte[]{0x01});
+        simulator.setStartupDelay(Duration.ofMillis(400));
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        try {
+            connection.connect();
+            long connectMs = connection.getConnectTime().toMillis();
+            assertTrue(connectMs >= 400 && connectMs < 2000, "connect took " + connectMs + "ms");
+            assertArrayEquals(new byte[]{0x01}, connection.read(DataPointId.id(1)).payload());
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testJournaledWritesWaitForTheBusAndSurviveRestart(@TempDir Path dir) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(5, new byte[]{0x00});
+        simulator.define(6, new byte[]{0x00});
+        var file = dir.resolve("writes.journal");
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setCoalesceWrites(true);
+        var journal = WriteJournal.open(file);
+        connection.setJournal(journal);
+        connection.connect();
+        try {
+            simulator.indicateServerItem(10, new byte[]{0x00});
+            long deadline = System.currentTimeMillis() + 5000;
+            while (connection.getSupervisor().getState() != LinkSupervisor.State.BUS_LOST) {
+                assertTrue(System.currentTimeMillis() < deadline, "bus loss not seen");
+                Thread.sleep(20);
+            }
+            int before = simulator.setCommands();
+            var first = connection.write(DataPoint.uInt8(DataPointId.id(5), 1), false);
+            connection.write(DataPoint.uInt8(DataPointId.id(5), 2), false);
+            connection.write(DataPoint.uInt8(DataPointId.id(6), 3), false);
+            Thread.sleep(300);
+            assertEquals(before, simulator.setCommands());
+            assertFalse(first.isDone());
+            assertEquals(3, journal.stats().pending());
+        } finally {
+            // Neustart: die offenen Schreibaufträge kommen aus dem Journal
+            connection.disconnect();
+            journal.close();
+            simulator.shutdown();
+        }
+
+        pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(5, new byte[]{0x00});
+        simulator.define(6, new byte[]{0x00});
+        connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        journal = WriteJournal.open(file);
+        assertEquals(2, journal.recovered().size());
+        connection.setJournal(journal);
+        connection.connect();
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (journal.stats().pending() > 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "journal not replayed");
+                Thread.sleep(20);
+            }
+            assertArrayEquals(new byte[]{0x02}, simulator.value(5));
+            assertArrayEquals(new byte[]{0x03}, simulator.value(6));
+        } finally {
+            connection.disconnect();
+            journal.close();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testJournaledWritesOnARunningLinkKeepTheOverflowPolicy(@TempDir Path dir) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        simulator.define(1, new byte[]{0x00});
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setWriteBatchSize(1);
+        connection.configureQueue(TrafficClass.AUTOMATION, 1, TransmitScheduler.OverflowPolicy.REJECT);
+        var journal = WriteJournal.open(dir.resolve("writes.journal"));
+        connection.setJournal(journal);
+        connection.connect();
+        try {
+            // Modul antwortet nicht: der erste Auftrag hängt im Versand, der zweite füllt die Queue
+            simulator.setSilent(true);
+            connection.writeAsync(DataPoint.bool(DataPointId.id(1), true), TrafficClass.AUTOMATION, null);
+            Thread.sleep(200);
+            connection.writeAsync(DataPoint.bool(DataPointId.id(1), false), TrafficClass.AUTOMATION, null);
+            var full = connection.writeAsync(DataPoint.bool(DataPointId.id(1), true), TrafficClass.AUTOMATION, null);
+            var failure = assertThrows(ExecutionException.class, () -> full.get(1, TimeUnit.SECONDS));
+            assertTrue(assertInstanceOf(BAOSQueueException.class, failure.getCause()).isQueueFull());
+            // der abgelehnte Auftrag ist auch im Journal erledigt
+            assertEquals(2, journal.stats().pending());
+        } finally {
+            connection.disconnect();
+            journal.close();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testWaitingJournaledWritesAreReplayedByClass(@TempDir Path dir) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        IntStream.rangeClosed(1, 40).forEach(id -> simulator.define(id, new byte[]{0x00}));
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        var journal = WriteJournal.open(dir.resolve("writes.journal"));
+        connection.setJournal(journal);
+        connection.connect();
+        try {
+            simulator.indicateServerItem(10, new byte[]{0x00});
+            long deadline = System.currentTimeMillis() + 5000;
+            while (connection.getSupervisor().getState() != LinkSupervisor.State.BUS_LOST) {
+                assertTrue(System.currentTimeMillis() < deadline, "bus loss not seen");
+                Thread.sleep(20);
+            }
+            // mehr Automatisierung als auf einmal in die Queue nachgeladen wird, danach ein Benutzerbefehl
+            var automation = IntStream.rangeClosed(1, 36)
+                    .mapToObj(id -> connection.write(DataPoint.uInt8(DataPointId.id(id), 1), TrafficClass.AUTOMATION, null))
+                    .toList();
+            var interactive = connection.write(DataPoint.uInt8(DataPointId.id(40), 1), TrafficClass.INTERACTIVE, null);
+
+            simulator.indicateServerItem(10, new byte[]{0x01});
+            interactive.get(5, TimeUnit.SECONDS);
+            assertTrue(automation.stream().noneMatch(CompletableFuture::isDone));
+            for (var write : automation) write.get(10, TimeUnit.SECONDS);
+        } finally {
+            connection.disconnect();
+            journal.close();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testLostResponseTimesOutAfterMeasuredRoundTripInsteadOfFixedTimeout() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(5));
+        simulator.define(1, new byte[]{0x01});
+        simulator.define(2, new byte[]{0x00});
+        var connection = new SerialBAOSConnection(pair.host(), 5000, 3);
+        connection.setTimeoutBounds(Duration.ofMillis(100), Duration.ofSeconds(5));
+        connection.connect();
+        try {
+            for (int i = 0; i < 10; i++) connection.read(DataPointId.id(1));
+            var stats = connection.rttStats(Service.GET_DP_VALUE);
+            assertTrue(stats.samples() >= 10);
+            assertTrue(stats.timeoutMs() < 1000, stats.toString());
+
+            simulator.dropResponses(1);
+            long start = System.nanoTime();
+            assertThrows(BAOSReadException.class, () -> connection.read(DataPointId.id(1)));
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMs < 1000, "waited " + waitedMs + "ms");
+            assertEquals(1, connection.rttStats(Service.GET_DP_VALUE).timeouts());
+
+            // ein verlorener Schreibauftrag wird nach kurzer Zeit wiederholt
+            connection.write(DataPoint.uInt8(DataPointId.id(2), 9), false).get(5, TimeUnit.SECONDS);
+            simulator.dropResponses(1);
+            start = System.nanoTime();
+            connection.write(DataPoint.uInt8(DataPointId.id(2), 7), true).get(5, TimeUnit.SECONDS);
+            waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMs < 1500, "waited " + waitedMs + "ms");
+            assertEquals(1, connection.rttStats(Service.SET_DP_VALUE).timeouts());
+            assertArrayEquals(new byte[]{0x07}, simulator.value(2));
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    @Test
+    void testConcurrentReadsOfOneDatapointShareOneRequest() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(200));
+        simulator.define(4, new byte[]{0x2A});
+        simulator.define(5, new byte[]{0x01});
+        var connection = new SerialBAOSConnection(pair.host(), 2000, 3);
+        connection.setPipelineWindow(4);
+        connection.connect();
+        try {
+            int before = simulator.requests();
+            var reads = IntStream.range(0, 8).mapToObj(i -> connection.readAsync(DataPointId.id(4))).toList();
+            var other = connection.readAsync(DataPointId.id(5));
+            for (var read : reads) assertArrayEquals(new byte[]{0x2A}, read.get(5, TimeUnit.SECONDS).payload());
+            assertArrayEquals(new byte[]{0x01}, other.get(5, TimeUnit.SECONDS).payload());
+            assertEquals(2, simulator.requests() - before);
+            assertEquals(7, connection.absorbedReads());
+
+            // der Fehler trifft alle Wartenden, ohne weitere Anfrage
+            simulator.dropResponses(1);
+            before = simulator.requests();
+            var failing = IntStream.range(0, 4).mapToObj(i -> connection.readAsync(DataPointId.id(4))).toList();
+            for (var read : failing) {
+                var failure = assertThrows(ExecutionException.class, () -> read.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(TimeoutException.class, failure.getCause());
+            }
+            assertEquals(1, simulator.requests() - before);
+            assertEquals(10, connection.absorbedReads());
+
+            // danach wird wieder gelesen
+            assertArrayEquals(new byte[]{0x2A}, connection.read(DataPointId.id(4)).payload());
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscribersTest {
+
+    @Test
+    void testFanOutInSubscriptionOrderAndUnsubscribe() {
+        var subscribers = new Subscribers<String>();
+        var received = new ArrayList<String>();
+        var first = subscribers.add(event -> received.add("1:" + event));
+        subscribers.add(event -> {
+            throw new IllegalStateException("broken listener");
+        });
+        var third = subscribers.add(event -> received.add("3:" + event));
+        subscribers.accept("a");
+        assertEquals(List.of("1:a", "3:a"), received);
+        third.unsubscribe();
+
+        first.unsubscribe();
+        first.unsubscribe();
+        received.clear();
+        subscribers.accept("b");
+        assertTrue(received.isEmpty());
+        assertEquals(1, subscribers.size());
+    }
+
+    @Test
+    void testSameListenerTwiceIsRemovedOnePerHandle() {
+        var subscribers = new Subscribers<Integer>();
+        var count = new int[1];
+        Consumer<Integer> listener = value -> count[0] += value;
+        var a = subscribers.add(listener);
+        subscribers.add(listener);
+        subscribers.accept(1);
+        assertEquals(2, count[0]);
+
+        a.unsubscribe();
+        a.unsubscribe();
+        subscribers.accept(1);
+        assertEquals(3, count[0]);
+    }
+}
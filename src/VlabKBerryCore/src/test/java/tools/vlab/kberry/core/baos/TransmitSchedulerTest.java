@@ -0,0 +1,126 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransmitSchedulerTest {
+
+    @Test
+    void testClassesInOrderAndFifoWithinClass() throws Exception {
+        var scheduler = new TransmitScheduler<String>(10, TransmitScheduler.OverflowPolicy.REJECT);
+        scheduler.offer(TrafficClass.BACKGROUND, "refresh");
+        scheduler.offer(TrafficClass.INTERACTIVE, "light 1");
+        scheduler.offer(TrafficClass.INTERACTIVE, "light 2");
+        scheduler.offer(TrafficClass.AUTOMATION, "blind");
+        scheduler.offer(TrafficClass.LINK_CONTROL, "ack");
+        scheduler.requeue(TrafficClass.INTERACTIVE, "light 0", TransmitScheduler.NO_DEADLINE);
+
+        var taken = new ArrayList<String>();
+        String item;
+        while ((item = scheduler.take(0, TimeUnit.MILLISECONDS)) != null) taken.add(item);
+
+        assertEquals(List.of("ack", "light 0", "light 1", "light 2", "blind", "refresh"), taken);
+        assertEquals(3, scheduler.stats(TrafficClass.INTERACTIVE).taken());
+    }
+
+    @Test
+    void testExpiredCommandsAreDropped() throws Exception {
+        var discarded = new ArrayList<String>();
+        var scheduler = new TransmitScheduler<String>(10, TransmitScheduler.OverflowPolicy.BLOCK);
+        scheduler.setDiscardListener((item, reason) -> discarded.add(item));
+        scheduler.offer(TrafficClass.AUTOMATION, "stale", System.nanoTime() - 1, 0, TimeUnit.MILLISECONDS);
+        scheduler.offer(TrafficClass.AUTOMATION, "fresh", System.nanoTime() + TimeUnit.SECONDS.toNanos(10), 0, TimeUnit.MILLISECONDS);
+
+        assertEquals("fresh", scheduler.take(0, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("stale"), discarded);
+        assertEquals(1, scheduler.stats(TrafficClass.AUTOMATION).expired());
+    }
+
+    @Test
+    void testOverflowPolicies() throws Exception {
+        var discarded = new ArrayList<String>();
+        var scheduler = new TransmitScheduler<String>(2, TransmitScheduler.OverflowPolicy.BLOCK)
+                .configure(TrafficClass.BACKGROUND, 2, TransmitScheduler.OverflowPolicy.DROP_OLDEST)
+                .configure(TrafficClass.INTERACTIVE, 2, TransmitScheduler.OverflowPolicy.REJECT);
+        scheduler.setDiscardListener((item, reason) -> discarded.add(item));
+
+        for (String item : List.of("b1", "b2", "b3")) scheduler.offer(TrafficClass.BACKGROUND, item);
+        for (String item : List.of("i1", "i2")) scheduler.offer(TrafficClass.INTERACTIVE, item);
+        assertFalse(scheduler.offer(TrafficClass.INTERACTIVE, "i3"));
+        for (String item : List.of("a1", "a2")) scheduler.offer(TrafficClass.AUTOMATION, item);
+        assertFalse(scheduler.offer(TrafficClass.AUTOMATION, "a3", TransmitScheduler.NO_DEADLINE, 20, TimeUnit.MILLISECONDS));
+
+        assertEquals(List.of("b1", "i3", "a3"), discarded);
+        var background = scheduler.stats(TrafficClass.BACKGROUND);
+        assertEquals(1, background.dropped());
+        assertEquals(2, background.depth());
+        assertEquals(1, scheduler.stats(TrafficClass.INTERACTIVE).rejected());
+        assertEquals(6, scheduler.size());
+    }
+
+    @Test
+    void testEveryOldestDroppedAfterShrinkingReachesTheListener() throws Exception {
+        var discarded = new ArrayList<String>();
+        var scheduler = new TransmitScheduler<String>(4, TransmitScheduler.OverflowPolicy.DROP_OLDEST);
+        scheduler.setDiscardListener((item, reason) -> {
+            assertEquals(TransmitScheduler.Discard.DROPPED, reason);
+            discarded.add(item);
+        });
+        for (String item : List.of("b1", "b2", "b3", "b4")) scheduler.offer(TrafficClass.BACKGROUND, item);
+        scheduler.configure(TrafficClass.BACKGROUND, 1, TransmitScheduler.OverflowPolicy.DROP_OLDEST);
+
+        scheduler.offer(TrafficClass.BACKGROUND, "b5");
+        assertEquals(List.of("b1", "b2", "b3", "b4"), discarded);
+        assertEquals(4, scheduler.stats(TrafficClass.BACKGROUND).dropped());
+        assertEquals("b5", scheduler.take(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testBlockedOfferContinuesAfterTake() throws Exception {
+        var scheduler = new TransmitScheduler<String>(1, TransmitScheduler.OverflowPolicy.BLOCK);
+        scheduler.offer(TrafficClass.AUTOMATION, "first");
+        var consumer = Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(50);
+                scheduler.take(0, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(scheduler.offer(TrafficClass.AUTOMATION, "second", TransmitScheduler.NO_DEADLINE, 1, TimeUnit.SECONDS));
+        consumer.join();
+        assertEquals("second", scheduler.take(0, TimeUnit.MILLISECONDS));
+        assertTrue(scheduler.stats(TrafficClass.AUTOMATION).maxWaitMs() >= 40);
+    }
+
+    @Test
+    void testNewerCommandReplacesQueuedOneInPlace() throws Exception {
+        var replaced = new ArrayList<String>();
+        var scheduler = new TransmitScheduler<String>(10, TransmitScheduler.OverflowPolicy.REJECT);
+        // Schlüssel: Datenpunkt vor dem ':', "scene" wird nie zusammengefasst
+        scheduler.setCoalesceKey(item -> item.startsWith("scene") ? null : item.substring(0, item.indexOf(':')));
+        scheduler.setCoalesceListener((old, replacement) -> replaced.add(old + ">" + replacement));
+
+        scheduler.offer(TrafficClass.INTERACTIVE, "dim:10");
+        scheduler.offer(TrafficClass.INTERACTIVE, "led:red");
+        scheduler.offer(TrafficClass.INTERACTIVE, "dim:20");
+        scheduler.offer(TrafficClass.INTERACTIVE, "scene:1");
+        scheduler.offer(TrafficClass.INTERACTIVE, "scene:1");
+        scheduler.offer(TrafficClass.INTERACTIVE, "dim:30");
+
+        assertEquals("dim:30", scheduler.take(0, TimeUnit.MILLISECONDS));
+        // nach dem Senden wird wieder neu eingereiht
+        scheduler.offer(TrafficClass.INTERACTIVE, "dim:40");
+        var taken = new ArrayList<String>();
+        String item;
+        while ((item = scheduler.take(0, TimeUnit.MILLISECONDS)) != null) taken.add(item);
+
+        assertEquals(List.of("led:red", "scene:1", "scene:1", "dim:40"), taken);
+        assertEquals(List.of("dim:10>dim:20", "dim:20>dim:30"), replaced);
+        assertEquals(2, scheduler.stats(TrafficClass.INTERACTIVE).coalesced());
+    }
+}
@@ -0,0 +1,102 @@
+package tools.vlab.kberry.core.baos;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReopenRecoversPendingWritesInOrderAndCoalesces() throws IOException {
+        var file = dir.resolve("writes.journal");
+        try (var journal = WriteJournal.open(file)) {
+            long first = journal.append(DataPoint.uInt8(DataPointId.id(1), 10), TrafficClass.AUTOMATION, 0, true);
+            journal.append(DataPoint.bool(DataPointId.id(2), true), TrafficClass.INTERACTIVE, 0, false);
+            journal.append(DataPoint.bool(DataPointId.id(2), false), TrafficClass.INTERACTIVE, 0, false);
+            journal.append(DataPoint.uInt8(DataPointId.id(3), 1), TrafficClass.AUTOMATION, 0, true);
+            journal.append(DataPoint.uInt8(DataPointId.id(3), 2), TrafficClass.AUTOMATION, 1234, true);
+            journal.ack(first);
+            assertEquals(4, journal.stats().pending());
+        }
+
+        try (var journal = WriteJournal.open(file)) {
+            var recovered = journal.recovered();
+            // Datenpunkt 2 ist nicht zusammenfassbar, jeder Schreibauftrag bleibt
+            assertEquals(List.of(2, 2, 3), recovered.stream().map(entry -> entry.dataPoint().getId()).toList());
+            assertArrayEquals(new byte[]{0x01}, recovered.get(0).dataPoint().payload());
+            assertArrayEquals(new byte[]{0x00}, recovered.get(1).dataPoint().payload());
+            assertArrayEquals(new byte[]{0x02}, recovered.get(2).dataPoint().payload());
+            assertEquals(TrafficClass.INTERACTIVE, recovered.get(0).trafficClass());
+            assertEquals(1234, recovered.get(2).expiresAtMillis());
+            recovered.forEach(entry -> journal.ack(entry.seq()));
+            long next = journal.append(DataPoint.uInt8(DataPointId.id(4), 4), TrafficClass.BACKGROUND, 0, true);
+            assertTrue(next > recovered.get(2).seq());
+        }
+
+        try (var journal = WriteJournal.open(file)) {
+            assertEquals(List.of(4), journal.recovered().stream().map(entry -> entry.dataPoint().getId()).toList());
+        }
+    }
+
+    @Test
+    void testTornRecordAtTheEndIsIgnored() throws IOException {
+        var file = dir.resolve("writes.journal");
+        int lastRecordAt;
+        try (var journal = WriteJournal.open(file)) {
+            journal.append(DataPoint.uInt8(DataPointId.id(1), 1), TrafficClass.AUTOMATION, 0, true);
+            lastRecordAt = journal.stats().used();
+            journal.append(DataPoint.uInt8(DataPointId.id(2), 2), TrafficClass.AUTOMATION, 0, true);
+        }
+        // Absturz mitten im Schreiben: der Wert des letzten Datensatzes passt nicht zur CRC
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), lastRecordAt + 8 + 23);
+        }
+
+        try (var journal = WriteJournal.open(file)) {
+            assertEquals(List.of(1), journal.recovered().stream().map(entry -> entry.dataPoint().getId()).toList());
+            journal.append(DataPoint.uInt8(DataPointId.id(3), 3), TrafficClass.AUTOMATION, 0, true);
+        }
+        try (var journal = WriteJournal.open(file)) {
+            assertEquals(List.of(1, 3), journal.recovered().stream().map(entry -> entry.dataPoint().getId()).toList());
+        }
+    }
+
+    @Test
+    void testFullJournalIsCompactedToPendingWrites() throws IOException {
+        var file = dir.resolve("writes.journal");
+        try (var journal = WriteJournal.open(file, 1024, Duration.ofMillis(10))) {
+            journal.append(DataPoint.uInt8(DataPointId.id(99), 99), TrafficClass.AUTOMATION, 0, false);
+            for (int i = 0; i < 200; i++) {
+                journal.ack(journal.append(DataPoint.uInt8(DataPointId.id(i), i), TrafficClass.AUTOMATION, 0, false));
+            }
+            var stats = journal.stats();
+            assertTrue(stats.compactions() > 0);
+            assertEquals(1, stats.pending());
+            assertTrue(stats.used() <= 1024);
+
+            // mehr offene Schreibaufträge als in die Datei passen
+            assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 100; i++) {
+                    journal.append(DataPoint.uInt8(DataPointId.id(i), i), TrafficClass.AUTOMATION, 0, false);
+                }
+            });
+        }
+        try (var journal = WriteJournal.open(file, 1024, Duration.ofMillis(10))) {
+            assertEquals(99, journal.recovered().get(0).dataPoint().getId());
+        }
+    }
+}
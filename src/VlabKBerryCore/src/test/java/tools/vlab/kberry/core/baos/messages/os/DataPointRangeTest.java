@@ -0,0 +1,27 @@
+package tools.vlab.kberry.core.baos.messages.os;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataPointRangeTest {
+
+    @Test
+    void testIdsSplitIntoFewestRanges() {
+        var ids = List.of(DataPointId.id(12), DataPointId.id(3), DataPointId.id(1), DataPointId.id(2),
+                DataPointId.id(10), DataPointId.id(11), DataPointId.id(2), DataPointId.id(20));
+        assertEquals(List.of(new DataPointRange(1, 3), new DataPointRange(10, 3), new DataPointRange(20, 1)),
+                DataPointRange.of(ids));
+        assertTrue(DataPointRange.of(List.of()).isEmpty());
+    }
+
+    @Test
+    void testRestOfRange() {
+        var range = new DataPointRange(10, 20);
+        assertEquals(29, range.end());
+        assertEquals(new DataPointRange(18, 12), range.after(17));
+        assertFalse(range.contains(30));
+    }
+}
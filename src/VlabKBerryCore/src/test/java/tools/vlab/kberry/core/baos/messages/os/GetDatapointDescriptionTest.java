@@ -0,0 +1,49 @@
+package tools.vlab.kberry.core.baos.messages.os;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GetDatapointDescriptionTest {
+
+    @Test
+    void testRangeRequestToByteArray() {
+        var bytes = GetDatapointDescription.Request.range(DataPointRange.of(DataPointId.id(0x0102), 300)).toByteArray();
+        assertArrayEquals(new byte[]{(byte) 0xF0, 0x03, 0x01, 0x02, 0x01, 0x2C}, bytes);
+    }
+
+    @Test
+    void testResponseParsing() {
+        byte[] payload = new byte[]{
+                (byte) 0xF0, (byte) 0x83, // main/sub service
+                0x00, 0x01,               // start datapoint 1
+                0x00, 0x02,               // 2 items
+                0x00, 0x01, 0x00, 0x5C, 0x01,       // DP 1: 1 bit, C R W T, DPT 1
+                0x00, 0x03, 0x08, (byte) 0x94, 0x09 // DP 3: 2 bytes, C W U, DPT 9
+        };
+        var response = GetDatapointDescription.Response.frameData(FT12Frame.Data.response(payload, true));
+
+        assertTrue(response.isValid());
+        assertTrue(response.isSuccess());
+        assertEquals(2, response.getDescriptions().size());
+        var first = response.getDescriptions().get(0);
+        assertEquals(1, first.sizeInBits());
+        assertTrue(first.isCommunication() && first.isRead() && first.isWrite() && first.isTransmit());
+        assertFalse(first.isUpdate());
+        var second = response.getDescriptions().get(1);
+        assertEquals(3, second.id().id());
+        assertEquals(16, second.sizeInBits());
+        assertTrue(second.isUpdate());
+        assertFalse(second.isTransmit());
+        assertEquals(9, second.dpt());
+    }
+
+    @Test
+    void testErrorResponse() {
+        byte[] payload = new byte[]{(byte) 0xF0, (byte) 0x83, 0x00, 0x05, 0x00, 0x00, 0x02};
+        var response = GetDatapointDescription.Response.frameData(FT12Frame.Data.response(payload, true));
+        assertEquals(Error.NO_ELEMENT_FOUND, response.getError());
+        assertTrue(response.getDescriptions().isEmpty());
+    }
+}
@@ -0,0 +1,41 @@
+package tools.vlab.kberry.core.baos.messages.os;
+
+import org.junit.jupiter.api.Test;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetDatapointValueTest {
+
+    @Test
+    void testMultipleCommandsInOneRequest() {
+        var first = DataPoint.bool(DataPointId.id(7), true);
+        var second = DataPoint.uInt16(DataPointId.id(3), 0x1234);
+        var req = SetDatapointValue.Request.setCacheAndBus(List.of(first, second));
+        byte[] bytes = req.toByteArray();
+
+        assertEquals(SetDatapointValue.Request.HEADER_SIZE
+                + SetDatapointValue.Request.commandSize(first)
+                + SetDatapointValue.Request.commandSize(second), bytes.length);
+        assertArrayEquals(new byte[]{
+                (byte) 0xF0, 0x06,
+                0x00, 0x07, // start datapoint = erster Datenpunkt
+                0x00, 0x02, // number of commands
+                0x00, 0x07, 0x03, 0x01, 0x01,
+                0x00, 0x03, 0x03, 0x02, 0x12, 0x34
+        }, bytes);
+        assertEquals(7, req.getId());
+    }
+
+    @Test
+    void testResponseCarriesOneErrorForAllCommands() {
+        var ok = SetDatapointValue.Response.frameData(FT12Frame.Data.response(new byte[]{
+                (byte) 0xF0, (byte) 0x86, 0x00, 0x07, 0x00, 0x00, 0x00}, true));
+        assertFalse(ok.isFailed());
+        var failed = SetDatapointValue.Response.frameData(FT12Frame.Data.response(new byte[]{
+                (byte) 0xF0, (byte) 0x86, 0x00, 0x07, 0x00, 0x00, 0x02}, true));
+        assertTrue(failed.isFailed());
+    }
+}
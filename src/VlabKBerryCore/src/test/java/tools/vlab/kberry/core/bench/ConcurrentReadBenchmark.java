@@ -0,0 +1,73 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 16 threads (devices, refresh jobs, UI) reading the same 4 datapoints, 25 reads each, with and without
+ * deduplication of concurrent reads. Pipeline window 4.
+ * <p>
+ * The simulated object server answers after 10ms, the loopback adds 2ms per direction. Reports the
+ * requests that reached the object server, absorbed reads, p50 / p99 read latency and the total time.
+ */
+public class ConcurrentReadBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int READS = 25;
+    private static final int DATAPOINTS = 4;
+
+    public static void main(String[] args) throws Exception {
+        run("shared", true);
+        run("separate", false);
+        System.exit(0);
+    }
+
+    private static void run(String name, boolean deduplicate) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(2), 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(10));
+        for (int id = 1; id <= DATAPOINTS; id++) simulator.define(id, new byte[]{(byte) id});
+        var connection = new SerialBAOSConnection(pair.host(), 2000, 3);
+        connection.setPipelineWindow(4);
+        connection.setReadDeduplication(deduplicate);
+        connection.connect();
+        try {
+            int before = simulator.requests();
+            var latencies = new ConcurrentLinkedQueue<Long>();
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < READS; i++) {
+                            long t0 = System.nanoTime();
+                            connection.read(DataPointId.id(1 + (offset + i) % DATAPOINTS));
+                            latencies.add(System.nanoTime() - t0);
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            long t0 = System.nanoTime();
+            start.countDown();
+            for (var thread : threads) thread.join();
+            long total = System.nanoTime() - t0;
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-9s requests %4d  absorbed %4d  p50 %6.1f ms  p99 %6.1f ms  total %6.2f s%n", name,
+                    simulator.requests() - before, connection.absorbedReads(),
+                    sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6, total / 1e9);
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.baos.FT12StreamParser;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Frames per second and allocated bytes per frame of {@link FT12StreamParser} against the former copying
+ * parser ({@link LegacyFT12StreamParser}).
+ * <p>
+ * Input is a stream of ACKs and DP_VALUE_IND frames of 1..14 byte values, fed in chunks like a serial read
+ * would return them. Run: {@code ... FT12ParserBenchmark [chunk-size]}, default 64 bytes.
+ */
+public class FT12ParserBenchmark {
+
+    private static final int FRAMES = 20_000;
+    private static final int ROUNDS = 50;
+    private static long sink;
+
+    public static void main(String[] args) {
+        int chunkSize = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        byte[] stream = stream();
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int run = 0; run < 8; run++) {
+            boolean report = run >= 3;
+            measure("legacy", threads, report, () -> runLegacy(stream, chunkSize));
+            measure("ring  ", threads, report, () -> runRing(stream, chunkSize));
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void measure(String name, com.sun.management.ThreadMXBean threads, boolean report, Runnable body) {
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        body.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        long frames = (long) FRAMES * ROUNDS;
+        if (report) {
+            System.out.printf("%s %,12.0f frames/s %8.1f bytes/frame allocated%n",
+                    name, frames / (elapsed / 1e9), (double) allocated / frames);
+        }
+    }
+
+    private static void runLegacy(byte[] stream, int chunkSize) {
+        byte[] chunk = new byte[chunkSize];
+        for (int round = 0; round < ROUNDS; round++) {
+            var parser = new LegacyFT12StreamParser();
+            for (int offset = 0; offset < stream.length; offset += chunkSize) {
+                int n = Math.min(chunkSize, stream.length - offset);
+                System.arraycopy(stream, offset, chunk, 0, n);
+                parser.feed(chunk, n);
+                byte[] frame;
+                while ((frame = parser.pollFrame()) != null) {
+                    sink += frame.length;
+                }
+            }
+        }
+    }
+
+    private static void runRing(byte[] stream, int chunkSize) {
+        byte[] chunk = new byte[chunkSize];
+        FT12StreamParser.FrameHandler handler = (buffer, offset, length) -> sink += length;
+        for (int round = 0; round < ROUNDS; round++) {
+            var parser = new FT12StreamParser();
+            for (int offset = 0; offset < stream.length; offset += chunkSize) {
+                int n = Math.min(chunkSize, stream.length - offset);
+                System.arraycopy(stream, offset, chunk, 0, n);
+                parser.feed(chunk, n, handler);
+            }
+        }
+    }
+
+    private static byte[] stream() {
+        var out = new ByteArrayOutputStream();
+        for (int i = 0; i < FRAMES; i++) {
+            if (i % 4 == 0) {
+                out.write(0xE5);
+                continue;
+            }
+            int id = 1 + i % 300;
+            int valueLength = 1 + i % 14;
+            var payload = new ByteArrayOutputStream();
+            payload.writeBytes(new byte[]{(byte) 0xF0, (byte) 0xC1, (byte) (id >> 8), (byte) id, 0x00, 0x01,
+                    (byte) (id >> 8), (byte) id, 0x18, (byte) valueLength});
+            for (int v = 0; v < valueLength; v++) payload.write(i + v);
+            out.writeBytes(FT12Frame.Data.response(payload.toByteArray(), i % 2 == 0).toByteArray());
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,63 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.BAOSReadException;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+import tools.vlab.kberry.core.baos.messages.os.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Latency of datapoint reads when every 50th response gets lost: the read fails after its timeout. Fixed
+ * 5s timeout (floor = ceiling) against the timeout from the measured round-trip times.
+ * <p>
+ * The simulated object server answers after 10ms, the loopback adds 2ms per direction. 200 reads one
+ * after another; reports p50 / p99 / max of all reads and the time of the longest total run.
+ */
+public class LostResponseBenchmark {
+
+    private static final int READS = 200;
+    private static final int LOSS_EVERY = 50;
+
+    public static void main(String[] args) throws Exception {
+        run("adaptive", false);
+        run("fixed 5s", true);
+        System.exit(0);
+    }
+
+    private static void run(String name, boolean fixed) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(2), 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(10));
+        simulator.define(1, new byte[]{0x01});
+        var connection = new SerialBAOSConnection(pair.host(), 5000, 3);
+        if (fixed) connection.setTimeoutBounds(Duration.ofSeconds(5), Duration.ofSeconds(5));
+        connection.connect();
+        try {
+            for (int i = 0; i < 20; i++) connection.read(DataPointId.id(1));
+            var latencies = new long[READS];
+            int failed = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < READS; i++) {
+                if (i % LOSS_EVERY == LOSS_EVERY - 1) simulator.dropResponses(1);
+                long t0 = System.nanoTime();
+                try {
+                    connection.read(DataPointId.id(1));
+                } catch (BAOSReadException e) {
+                    failed++;
+                }
+                latencies[i] = System.nanoTime() - t0;
+            }
+            long total = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            System.out.printf("%-9s p50 %7.1f ms  p99 %7.1f ms  max %7.1f ms  total %6.1f s  lost %d  %s%n", name,
+                    latencies[READS / 2] / 1e6, latencies[READS * 99 / 100] / 1e6, latencies[READS - 1] / 1e6,
+                    total / 1e9, failed, connection.rttStats(Service.GET_DP_VALUE));
+        } finally {
+            connection.disconnect();
+            simulator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Datapoint reads per second through {@link SerialBAOSConnection} at pipeline windows 1, 2, 4 and 8.
+ * <p>
+ * The simulated object server answers after 40ms (module processing / bus), the loopback adds 2ms per
+ * direction. 16 threads read distinct datapoints for 5 seconds per window.
+ * Run: {@code ... PipelineWindowBenchmark [response-delay-ms]}.
+ */
+public class PipelineWindowBenchmark {
+
+    private static final int CALLERS = 16;
+    private static final int DATAPOINTS = 64;
+    private static final long MEASURE_MS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int responseDelayMs = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        for (int window : new int[]{1, 2, 4, 8}) {
+            run(window, responseDelayMs);
+        }
+    }
+
+    private static void run(int window, int responseDelayMs) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(2), 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(responseDelayMs));
+        for (int id = 1; id <= DATAPOINTS; id++) {
+            simulator.define(id, new byte[]{(byte) id});
+        }
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setPipelineWindow(window);
+        connection.connect();
+
+        var reads = new AtomicLong();
+        var failures = new AtomicLong();
+        long end = System.currentTimeMillis() + MEASURE_MS;
+        var callers = new ArrayList<Thread>();
+        for (int c = 0; c < CALLERS; c++) {
+            int first = c;
+            callers.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; System.currentTimeMillis() < end; i++) {
+                    int id = 1 + (first + i * CALLERS) % DATAPOINTS;
+                    try {
+                        connection.read(DataPointId.id(id));
+                        reads.incrementAndGet();
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread t : callers) t.join();
+        System.out.printf("window %d: %6.1f reads/s (%d reads, %d failed, %d frames received by module)%n",
+                window, reads.get() / (MEASURE_MS / 1000.0), reads.get(), failures.get(), simulator.requests());
+
+        connection.disconnect();
+        simulator.shutdown();
+    }
+}
@@ -0,0 +1,55 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.ReplayTransport;
+import tools.vlab.kberry.core.WireCapture;
+import tools.vlab.kberry.core.baos.BAOSReader;
+import tools.vlab.kberry.core.baos.messages.FT12Frame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a wire capture through {@link BAOSReader} and reports frames per second.
+ * <p>
+ * Run: {@code ... ReplayThroughputBenchmark [capture-file [speed]]}; without a file a synthetic burst of
+ * 100.000 DP_VALUE_IND frames is captured first. Speed defaults to maximum.
+ */
+public class ReplayThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path file;
+        if (args.length > 0) {
+            file = Path.of(args[0]);
+        } else {
+            file = Files.createTempFile("kberry-burst", ".kbw");
+            writeSyntheticBurst(file, 100_000);
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : ReplayTransport.MAX_SPEED;
+
+        for (int run = 0; run < 5; run++) {
+            var replay = ReplayTransport.scaled(file, speed);
+            var reader = new BAOSReader(replay, () -> {
+            });
+            reader.start();
+            replay.openPort();
+            if (!replay.awaitFinished(5, TimeUnit.MINUTES)) throw new IllegalStateException("Replay timeout");
+            long indications = 0;
+            while (reader.nextIndicator().isPresent()) indications++;
+            System.out.printf("run %d: %d frames in %.1fms -> %.0f frames/s (%d indications)%n",
+                    run, replay.getReplayedFrames(), replay.getElapsedNanos() / 1e6,
+                    replay.getReplayedFrames() / (replay.getElapsedNanos() / 1e9), indications);
+        }
+    }
+
+    private static void writeSyntheticBurst(Path file, int frames) throws Exception {
+        try (var capture = WireCapture.create(file)) {
+            for (int i = 0; i < frames; i++) {
+                int id = 1 + i % 200;
+                byte[] payload = {(byte) 0xF0, (byte) 0xC1, (byte) (id >> 8), (byte) id, 0x00, 0x01,
+                        (byte) (id >> 8), (byte) id, 0x18, 0x01, (byte) (i & 1)};
+                capture.received(FT12Frame.Data.response(payload, i % 2 == 0).toByteArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LineConfigurator;
+import tools.vlab.kberry.core.LineSettings;
+import tools.vlab.kberry.core.SerialPort;
+import tools.vlab.kberry.core.SerialPortListener;
+import tools.vlab.kberry.core.baos.FT12StreamParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive latency of {@link SerialPort} in PACKETIZED vs. STREAMING mode on a pseudo-terminal.
+ * <p>
+ * A small python3 helper opens a pty pair and copies its stdin to the master side; the
+ * {@link SerialPort} under test reads the slave side. Latency is measured from writing a
+ * DP_VALUE_IND frame into the helper until the complete frame was parsed in the listener.
+ * <p>
+ * Run: {@code java -cp target/classes:target/test-classes tools.vlab.kberry.core.bench.SerialReceiveLatencyBenchmark [frames]}
+ */
+public class SerialReceiveLatencyBenchmark {
+
+    private static final String PTY_BRIDGE = """
+            import os, sys
+            m, s = os.openpty()
+            print(os.ttyname(s), flush=True)
+            while True:
+                b = sys.stdin.buffer.read1(4096)
+                if not b:
+                    break
+                os.write(m, b)
+            """;
+
+    // 68 0C 0C 68 F3 | F0 C1 0001 0001 0001 10 01 01 | CS 16
+    private static final byte[] INDICATION = frame((byte) 0xF3,
+            new byte[]{(byte) 0xF0, (byte) 0xC1, 0x00, 0x01, 0x00, 0x01, 0x00, 0x01, 0x10, 0x01, 0x01});
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        for (SerialPort.ReceiveMode mode : SerialPort.ReceiveMode.values()) {
+            long[] latencies = run(mode, frames);
+            Arrays.sort(latencies);
+            System.out.printf("%-10s frames=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms%n",
+                    mode, frames,
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                    latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static long[] run(SerialPort.ReceiveMode mode, int frames) throws Exception {
+        Process bridge = new ProcessBuilder("python3", "-c", PTY_BRIDGE).start();
+        try {
+            String slave = new BufferedReader(new InputStreamReader(bridge.getInputStream())).readLine();
+            BlockingQueue<Long> received = new ArrayBlockingQueue<>(frames);
+            FT12StreamParser parser = new FT12StreamParser();
+            // Ein pty unterstützt keine Parität, sonst wie die echte Leitung
+            SerialPort port = new SerialPort(slave, LineSettings.ft12(19200).withoutParity(), mode, LineConfigurator.stty());
+            port.addListener(new SerialPortListener() {
+                @Override
+                public void dataReceived(byte[] data) {
+                    dataReceived(data, data.length);
+                }
+
+                @Override
+                public void dataReceived(byte[] data, int length) {
+                    long now = System.nanoTime();
+                    parser.feed(data, length, (frame, offset, frameLength) -> received.add(now));
+                }
+            });
+            if (!port.openPort()) {
+                throw new IOException("Could not open " + slave);
+            }
+            try {
+                OutputStream toMaster = bridge.getOutputStream();
+                long[] latencies = new long[frames];
+                for (int i = 0; i < frames; i++) {
+                    long start = System.nanoTime();
+                    toMaster.write(INDICATION);
+                    toMaster.flush();
+                    Long end = received.poll(1, TimeUnit.SECONDS);
+                    if (end == null) throw new IllegalStateException("Frame " + i + " not received");
+                    latencies[i] = end - start;
+                    Thread.sleep(5);
+                }
+                return latencies;
+            } finally {
+                port.closePort();
+            }
+        } finally {
+            bridge.destroy();
+        }
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static byte[] frame(byte control, byte[] payload) {
+        byte[] frame = new byte[payload.length + 7];
+        frame[0] = 0x68;
+        frame[1] = (byte) (payload.length + 1);
+        frame[2] = (byte) (payload.length + 1);
+        frame[3] = 0x68;
+        frame[4] = control;
+        System.arraycopy(payload, 0, frame, 5, payload.length);
+        int sum = control & 0xFF;
+        for (byte b : payload) sum += b & 0xFF;
+        frame[frame.length - 2] = (byte) sum;
+        frame[frame.length - 1] = 0x16;
+        return frame;
+    }
+}
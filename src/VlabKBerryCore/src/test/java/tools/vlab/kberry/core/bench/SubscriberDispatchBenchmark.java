@@ -0,0 +1,75 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.baos.Subscribers;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cost of handing one indication to 1, 4 and 16 subscribers of a datapoint: lookup of the subscribers by
+ * datapoint id plus the calls, as the indicator loop does it before posting to the listener mailbox.
+ * <p>
+ * {@link Subscribers} iterates its copy-on-write array, the comparison is the former map of a single
+ * listener per datapoint, which with more than one subscriber only calls the last one registered. Reports
+ * ns and allocated bytes per event.
+ */
+public class SubscriberDispatchBenchmark {
+
+    private static final int DATA_POINTS = 64;
+    private static final int EVENTS = 5_000_000;
+    private static long sink;
+
+    public static void main(String[] args) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var events = new DataPoint[DATA_POINTS];
+        for (int i = 0; i < DATA_POINTS; i++) events[i] = DataPoint.bool(DataPointId.id(i + 1), i % 2 == 0);
+
+        for (int subscribers : new int[]{1, 4, 16}) {
+            var arrays = new ConcurrentHashMap<Integer, Subscribers<DataPoint>>();
+            var singles = new ConcurrentHashMap<Integer, Consumer<DataPoint>>();
+            for (int id = 1; id <= DATA_POINTS; id++) {
+                var array = arrays.computeIfAbsent(id, k -> new Subscribers<>());
+                for (int s = 0; s < subscribers; s++) {
+                    int weight = s + 1;
+                    Consumer<DataPoint> listener = dp -> sink += dp.id().id() * weight;
+                    array.add(listener);
+                    singles.put(id, listener);
+                }
+            }
+            for (int run = 0; run < 6; run++) {
+                boolean report = run >= 3;
+                measure(subscribers, "cow-array", threads, report, () -> {
+                    for (int i = 0; i < EVENTS; i++) {
+                        var dp = events[i & (DATA_POINTS - 1)];
+                        var subs = arrays.get(dp.id().id());
+                        if (subs != null) subs.accept(dp);
+                    }
+                });
+                measure(subscribers, "single   ", threads, report, () -> {
+                    for (int i = 0; i < EVENTS; i++) {
+                        var dp = events[i & (DATA_POINTS - 1)];
+                        var listener = singles.get(dp.id().id());
+                        if (listener != null) listener.accept(dp);
+                    }
+                });
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void measure(int subscribers, String name, com.sun.management.ThreadMXBean threads, boolean report, Runnable body) {
+        long thread = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        body.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        if (report) {
+            System.out.printf("%2d subscribers %s %8.1f ns/event %6.1f bytes/event allocated%n",
+                    subscribers, name, (double) elapsed / EVENTS, (double) allocated / EVENTS);
+        }
+    }
+}
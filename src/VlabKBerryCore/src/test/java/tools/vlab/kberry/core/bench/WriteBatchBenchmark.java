@@ -0,0 +1,71 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to deliver bursts of 1, 10 and 50 writes through {@link SerialBAOSConnection}, with every write
+ * sent alone (batch size 1) and with queued writes batched into multi-datapoint SetDatapointValue requests.
+ * <p>
+ * The simulated object server answers after 40ms, the loopback adds 2ms per direction. Each burst is
+ * repeated 5 times on one connection, so the pacer runs in its steady state after the first one.
+ * Run: {@code ... WriteBatchBenchmark [response-delay-ms]}.
+ */
+public class WriteBatchBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int responseDelayMs = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        for (int burst : new int[]{1, 10, 50}) {
+            run(burst, 1, responseDelayMs);
+            run(burst, 64, responseDelayMs);
+        }
+    }
+
+    private static void run(int burst, int batchSize, int responseDelayMs) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(2), 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(responseDelayMs));
+        for (int id = 1; id <= burst; id++) {
+            simulator.define(id, new byte[]{0});
+        }
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.setWriteBatchSize(batchSize);
+        connection.connect();
+
+        int requestsBefore = simulator.requests();
+        long totalNanos = 0;
+        int failed = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            var results = new ArrayList<CompletableFuture<Void>>();
+            long start = System.nanoTime();
+            for (int id = 1; id <= burst; id++) {
+                results.add(connection.write(DataPoint.bool(DataPointId.id(id), round % 2 == 0), false));
+            }
+            for (var result : results) {
+                try {
+                    result.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failed++;
+                }
+            }
+            totalNanos += System.nanoTime() - start;
+        }
+        double meanMs = totalNanos / 1e6 / ROUNDS;
+        System.out.printf("burst %2d, batch %2d: %7.1f ms per burst, %6.1f writes/s (%d requests, %d commands, %d failed)%n",
+                burst, batchSize, meanMs, burst / (meanMs / 1000), simulator.requests() - requestsBefore,
+                simulator.setCommands(), failed);
+
+        connection.disconnect();
+        simulator.shutdown();
+    }
+}
@@ -0,0 +1,57 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.baos.TrafficClass;
+import tools.vlab.kberry.core.baos.WriteJournal;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Latency a write spends in the journal before it is queued: append with group commit (the background
+ * thread forces every 10ms) against forcing the file after every append. Each write is acked right after,
+ * like a write the object server accepted. Reports p50 / p99 in us and writes per second.
+ */
+public class WriteJournalBenchmark {
+
+    private static final int WRITES = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        var dir = Files.createTempDirectory("journal-bench");
+        try {
+            for (int run = 0; run < 4; run++) {
+                boolean report = run >= 2;
+                measure("group-commit", dir.resolve("group-" + run), false, report);
+                measure("force-each", dir.resolve("force-" + run), true, report);
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (var file : files.toList()) Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void measure(String name, Path file, boolean forceEach, boolean report) throws IOException {
+        var latencies = new long[WRITES];
+        long start = System.nanoTime();
+        try (var journal = WriteJournal.open(file, 4 << 20, Duration.ofMillis(10))) {
+            for (int i = 0; i < WRITES; i++) {
+                long t0 = System.nanoTime();
+                long seq = journal.append(DataPoint.uInt8(DataPointId.id(1 + (i & 255)), i & 0xFF), TrafficClass.AUTOMATION, 0, true);
+                if (forceEach) journal.flush();
+                latencies[i] = System.nanoTime() - t0;
+                journal.ack(seq);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (!report) return;
+        Arrays.sort(latencies);
+        System.out.printf("%-13s p50 %8.1f us  p99 %8.1f us  %10.0f writes/s%n", name,
+                latencies[WRITES / 2] / 1e3, latencies[WRITES * 99 / 100] / 1e3, WRITES / (elapsed / 1e9));
+    }
+}
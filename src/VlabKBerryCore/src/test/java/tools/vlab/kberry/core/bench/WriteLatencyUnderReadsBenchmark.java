@@ -0,0 +1,90 @@
+package tools.vlab.kberry.core.bench;
+
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+import tools.vlab.kberry.core.baos.TrafficClass;
+import tools.vlab.kberry.core.baos.messages.os.DataPoint;
+import tools.vlab.kberry.core.baos.messages.os.DataPointId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of INTERACTIVE writes (enqueue until the object server accepted them) while 8 threads read
+ * datapoints as fast as they can. Every 4th read hits a datapoint the module is still updating: it is
+ * answered with IN_PROGRESS and the value follows 300ms later.
+ * <p>
+ * The simulated object server answers after 20ms, the loopback adds 2ms per direction. 100 writes, one
+ * every 100ms. Run: {@code ... WriteLatencyUnderReadsBenchmark [readers]}.
+ */
+public class WriteLatencyUnderReadsBenchmark {
+
+    private static final int WRITES = 100;
+    private static final int DATAPOINTS = 32;
+
+    public static void main(String[] args) throws Exception {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        run(0);
+        run(readers);
+        System.exit(0);
+    }
+
+    private static void run(int readers) throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ofMillis(2), 0);
+        var simulator = new ObjectServerSimulator(pair.device(), Duration.ofMillis(20));
+        for (int id = 1; id <= DATAPOINTS; id++) {
+            simulator.define(id, new byte[]{(byte) id});
+            if (id % 4 == 0) simulator.inProgress(id, Duration.ofMillis(300));
+        }
+        simulator.define(100, new byte[]{0});
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        connection.connect();
+
+        var reads = new AtomicLong();
+        var stop = new java.util.concurrent.atomic.AtomicBoolean();
+        var threads = new ArrayList<Thread>();
+        for (int r = 0; r < readers; r++) {
+            int first = r;
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = first; !stop.get(); i++) {
+                    try {
+                        connection.read(DataPointId.id(1 + i % DATAPOINTS));
+                        reads.incrementAndGet();
+                    } catch (Exception ignored) {
+                    }
+                }
+            }));
+        }
+
+        long[] latencies = new long[WRITES];
+        long start = System.nanoTime();
+        for (int i = 0; i < WRITES; i++) {
+            long sentAt = System.nanoTime();
+            connection.write(DataPoint.bool(DataPointId.id(100), i % 2 == 0), TrafficClass.INTERACTIVE, null)
+                    .get(60, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - sentAt;
+            long next = start + (i + 1) * TimeUnit.MILLISECONDS.toNanos(100);
+            long wait = next - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stop.set(true);
+        for (Thread t : threads) t.join();
+
+        Arrays.sort(latencies);
+        System.out.printf("%d readers: write latency p50 %6.1f ms, p95 %6.1f ms, p99 %6.1f ms, max %6.1f ms (%.0f reads/s)%n",
+                readers, ms(latencies, 0.50), ms(latencies, 0.95), ms(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6, reads.get() / seconds);
+
+        connection.disconnect();
+        simulator.shutdown();
+    }
+
+    private static double ms(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))] / 1e6;
+    }
+}
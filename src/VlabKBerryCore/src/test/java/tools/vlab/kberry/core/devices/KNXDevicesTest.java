@@ -0,0 +1,96 @@
+package tools.vlab.kberry.core.devices;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.vlab.kberry.core.HausTester;
+import tools.vlab.kberry.core.LoopbackTransport;
+import tools.vlab.kberry.core.baos.DescriptionCache;
+import tools.vlab.kberry.core.baos.ObjectServerSimulator;
+import tools.vlab.kberry.core.baos.SerialBAOSConnection;
+
+import java.time.Duration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KNXDevicesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testDatapointIdsAndExportPerShard() throws Exception {
+        var devices = new KNXDevices(List.of(connection(), connection()), ShardSelector.byFloor());
+        var kitchen = Scene.at(HausTester.Kueche);
+        var office = Scene.at(HausTester.Office);
+        var kidsRoom = Scene.at(HausTester.KinderzimmerBlau);
+        devices.register(kitchen, 0);
+        devices.register(office, 1);
+        devices.register(kidsRoom, 1);
+
+        assertEquals(0, devices.getShard(kitchen).orElseThrow());
+        assertEquals(1, devices.getShard(office).orElseThrow());
+        assertTrue(devices.getBao(0, 1).isPresent());
+        assertTrue(devices.getBao(0, 2).isEmpty());
+        assertTrue(devices.getBao(1, 2).isPresent());
+
+        devices.exportCSV(dir.resolve("export.csv"));
+        var module1 = Files.readAllLines(dir.resolve("export_module1.csv"));
+        var module2 = Files.readAllLines(dir.resolve("export_module2.csv"));
+        assertEquals(1, module1.stream().filter(line -> line.startsWith("DP;")).count());
+        assertEquals(2, module2.stream().filter(line -> line.startsWith("DP;")).count());
+        assertTrue(module2.contains("Device name;KNX BAOS 830 Modul 2;;;;"));
+    }
+
+    @Test
+    void testSelectorKeepsFloorTogether() {
+        var devices = new KNXDevices(List.of(connection(), connection(), connection()), ShardSelector.byFloor());
+        var blue = Scene.at(HausTester.KinderzimmerBlau);
+        var yellow = Scene.at(HausTester.KinderzimmerGelbDecke);
+        devices.register(blue);
+        devices.register(yellow);
+
+        assertEquals(devices.getShard(blue), devices.getShard(yellow));
+    }
+
+    @Test
+    void testValidationAgainstModuleAndDescriptionCache() throws Exception {
+        var pair = LoopbackTransport.pair(Duration.ZERO, 0);
+        var simulator = new ObjectServerSimulator(pair.device());
+        // Szene: 1 Byte, Kommunikation + Schreiben + Übertragen
+        simulator.describe(1, 7, 0x54, 17);
+        simulator.describe(2, 0, 0x04, 1);
+        simulator.describe(5, 7, 0x54, 17);
+        simulator.setMaxItemsPerResponse(1);
+        var connection = new SerialBAOSConnection(pair.host(), 1000, 3);
+        var devices = new KNXDevices(connection);
+        devices.setDescriptionCache(new DescriptionCache(dir));
+        devices.register(Scene.at(HausTester.Kueche));
+        devices.register(Scene.at(HausTester.Office));
+        devices.register(Scene.at(HausTester.KinderzimmerBlau));
+        try {
+            devices.connect();
+            int requests = simulator.descriptionRequests();
+            // 1 und 2 einzeln, die Nachfrage nach 3 findet nichts
+            assertEquals(3, requests);
+
+            var problems = devices.validate();
+            assertEquals(2, problems.size());
+            assertTrue(problems.get(0).contains("DP 2") && problems.get(0).contains("value size 1 bit instead of 8 bit")
+                    && problems.get(0).contains("transmit flag not set"), problems.get(0));
+            assertTrue(problems.get(1).contains("DP 3") && problems.get(1).contains("not configured"), problems.get(1));
+            assertEquals(requests, simulator.descriptionRequests());
+            assertEquals(1, Files.list(dir).filter(file -> file.getFileName().toString().startsWith("dp-descriptions-")).count());
+        } finally {
+            devices.disconnect();
+            simulator.shutdown();
+        }
+    }
+
+    private static SerialBAOSConnection connection() {
+        return new SerialBAOSConnection(LoopbackTransport.pair().host(), 1000, 3);
+    }
+}